@@ -0,0 +1,88 @@
+package com.kwanghoon.jpashop.bench;
+
+import com.kwanghoon.jpashop.JpaShopApplication;
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 식별자 전략별 persist 처리량 (SnowflakeIdGenerator)
+* - sequence: insert 마다 hibernate_sequence 조회
+* - snowflake: DB 접근 없이 애플리케이션에서 생성
+*
+* 트랜잭션 하나에 회원 BATCH 명을 persist (insert 는 jdbc batch), Score 는 회원 한 명 기준
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IdGeneratorBenchmark {
+
+    private static final int BATCH = 100;
+
+    @Param({"sequence", "snowflake"})
+    public String strategy;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory emf;
+    private TransactionTemplate tx;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaShopApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:id-bench-" + strategy + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.properties.jpashop.id.strategy=" + strategy,
+                "spring.jpa.properties.hibernate.show_sql=false",
+                "spring.jpa.properties.hibernate.generate_statistics=false",
+                "decorator.datasource.p6spy.enable-logging=false",
+                "logging.level.root=warn",
+                "logging.level.org.hibernate.SQL=off",
+                "logging.level.org.hibernate.type=off")
+            .run();
+        emf = context.getBean(EntityManagerFactory.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void persist() {
+        tx.execute(status -> {
+            EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+            for (int i = 0; i < BATCH; i++) {
+                Member member = new Member();
+                member.setName("member" + sequence++);
+                member.setAddress(new Address("서울", "강가", "123-123"));
+                em.persist(member);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.kwanghoon.jpashop.bench;
+
+import com.kwanghoon.jpashop.JpaShopApplication;
+import com.kwanghoon.jpashop.repository.OrderCursor;
+import com.kwanghoon.jpashop.repository.OrderRepository;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+/*
+* 벤치마크용 스프링 컨텍스트 + 인메모리 H2
+* generate 프로필(DataGenerator)로 orders 건수 만큼 주문을 넣는다. 주문당 상품 수는 1~5 개
+*/
+@State(Scope.Benchmark)
+public class OrderDataState {
+
+    @Param({"1000", "100000", "1000000"})
+    public int orders;
+
+    ConfigurableApplicationContext context;
+    OrderRepository orderRepository;
+    OrderQueryRepository orderQueryRepository;
+    TransactionTemplate readOnlyTx;
+    Statistics statistics;
+    OrderCursor lastPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = boot(orders);
+
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        lastPageCursor = findLastPageCursor(context.getBean(JdbcTemplate.class));
+    }
+
+    /* generate 프로필로 orders 건수만큼 데이터를 넣은 컨텍스트, properties 로 설정 추가 */
+    static ConfigurableApplicationContext boot(int orders, String... properties) {
+        return new SpringApplicationBuilder(JpaShopApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("generate")
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "jpashop.generator.orders=" + orders,
+                "jpashop.generator.members=" + Math.max(orders / 10, 1),
+                "jpashop.generator.items=1000",
+                "jpashop.generator.categories=0",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.properties.hibernate.show_sql=false",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "decorator.datasource.p6spy.enable-logging=false",
+                "logging.level.root=warn",
+                "logging.level.org.hibernate.SQL=off",
+                "logging.level.org.hibernate.type=off")
+            .properties(properties)
+            .run();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /* keyset 벤치마크용: 마지막 페이지 직전 위치 */
+    private OrderCursor findLastPageCursor(JdbcTemplate jdbc) {
+        return jdbc.queryForObject(
+            "select order_date, order_id from orders order by order_date, order_id limit 1 offset ?",
+            (rs, rowNum) -> new OrderCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2)),
+            Math.max(orders - 101, 0));
+    }
+}
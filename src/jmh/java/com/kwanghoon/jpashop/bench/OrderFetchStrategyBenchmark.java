@@ -0,0 +1,125 @@
+package com.kwanghoon.jpashop.bench;
+
+import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.repository.OrderSearch;
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatAssembler;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+* OrderApiController V1 ~ V6 조회 전략 비교
+* 컨트롤러와 같은 repository 메서드를 호출하고, 엔티티 조회 방식은 DTO 변환 시 건드리는 연관관계까지 초기화한다.
+*
+* 결과 보는 법
+* - 처리량: Score (ops/s)
+* - 할당률: gc.alloc.rate.norm (B/op)
+* - SQL 실행 수: statements (ops/s) / Score = 요청 한 번당 SQL 수
+*
+* V1 과 V2 는 같은 쿼리(findAll + 지연 로딩)를 실행하므로 v2 하나로 측정한다.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderFetchStrategyBenchmark {
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class SqlCounter {
+        public long statements;
+
+        private long before;
+
+        @Setup(Level.Invocation)
+        public void mark(OrderDataState data) {
+            before = data.statistics.getPrepareStatementCount();
+        }
+
+        void record(OrderDataState data) {
+            statements += data.statistics.getPrepareStatementCount() - before;
+        }
+    }
+
+    @Benchmark
+    public void v2_lazyLoading(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        data.readOnlyTx.execute(status -> {
+            touch(data.orderRepository.findAll(new OrderSearch()), bh);
+            return null;
+        });
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v3_fetchJoin(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        data.readOnlyTx.execute(status -> {
+            touch(data.orderRepository.findAllWithItem(), bh);
+            return null;
+        });
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v3_1_fetchJoinAndBatchSize(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        data.readOnlyTx.execute(status -> {
+            touch(data.orderRepository.findAllWithMemberDelivery(0, 100), bh);
+            return null;
+        });
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v3_1_deepOffsetPage(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        data.readOnlyTx.execute(status -> {
+            touch(data.orderRepository.findAllWithMemberDelivery(Math.max(data.orders - 100, 0), 100), bh);
+            return null;
+        });
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v3_2_deepCursorPage(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        data.readOnlyTx.execute(status -> {
+            touch(data.orderRepository.findAllWithMemberDelivery(data.lastPageCursor, 100), bh);
+            return null;
+        });
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v4_dtoNPlusOne(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        bh.consume(data.orderQueryRepository.findOrderQueryDtos());
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v5_dtoInClause(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        bh.consume(data.orderQueryRepository.findAllByDto_optimization());
+        counter.record(data);
+    }
+
+    @Benchmark
+    public void v6_flat(OrderDataState data, SqlCounter counter, Blackhole bh) {
+        List<OrderQueryDto> result = OrderFlatAssembler.assemble(data.orderQueryRepository.findAllByDto_flat());
+        bh.consume(result);
+        counter.record(data);
+    }
+
+    /* OrderApiController.OrderDto 변환 시 접근하는 연관관계 초기화 */
+    private static void touch(List<Order> orders, Blackhole bh) {
+        for (Order order : orders) {
+            bh.consume(order.getMember().getName());
+            bh.consume(order.getDelivery().getAddress());
+            order.getOrderItems().forEach(oi -> bh.consume(oi.getItem().getName()));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.kwanghoon.jpashop.bench;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatAssembler;
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.*;
+
+/*
+* V6 플랫 데이터 변환 비교 (DB 없이 변환 비용만)
+* - groupingBy: 기존 OrderApiController.orderV6 방식
+* - assembler: OrderFlatAssembler
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderFlatAssemblerBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private List<OrderFlatDto> flats;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        Address address = new Address("서울", "강가", "123-123");
+        flats = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long orderId = i / 4 + 1;
+            flats.add(new OrderFlatDto(orderId, "회원" + orderId, now, OrderStatus.ORDER, address, "item" + i, 10000, 1));
+        }
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> groupingBy() {
+        return flats.stream()
+            .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
+                    o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()), mapping(o -> new OrderItemQueryDto(o.getOrderId(),
+                o.getItemName(), o.getOrderPrice(), o.getCount()), toList()))).entrySet().stream()
+            .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+            .collect(toList());
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> assembler() {
+        return OrderFlatAssembler.assemble(flats);
+    }
+}
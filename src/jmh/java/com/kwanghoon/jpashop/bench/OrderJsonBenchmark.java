@@ -0,0 +1,93 @@
+package com.kwanghoon.jpashop.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import com.kwanghoon.jpashop.controller.json.OrderJsonModule;
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 주문 조회 DTO JSON 직렬화 비교 (DB 없이 직렬화 비용만)
+* - databind: 스프링 부트 기본 ObjectMapper (+ Hibernate5Module)
+* - dedicated: 같은 설정 + OrderJsonModule
+* 응답 버퍼 비용을 빼기 위해 출력은 버린다.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderJsonBenchmark {
+
+    @Param({"1000", "100000"})
+    public int orders;
+
+    @Param({"databind", "dedicated"})
+    public String serializer;
+
+    private ObjectMapper objectMapper;
+    private List<OrderQueryDto> orderQueryDtos;
+    private List<OrderSimpleQueryDto> orderSimpleQueryDtos;
+
+    private static final OutputStream NULL_OUTPUT = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .modulesToInstall(new Hibernate5Module());
+        if ("dedicated".equals(serializer)) {
+            builder.modulesToInstall(new Hibernate5Module(), new OrderJsonModule());
+        }
+        objectMapper = builder.build();
+
+        LocalDateTime orderDate = LocalDateTime.of(2020, 12, 31, 23, 59, 59, 123_000_000);
+        orderQueryDtos = new ArrayList<>(orders);
+        orderSimpleQueryDtos = new ArrayList<>(orders);
+        for (long i = 1; i <= orders; i++) {
+            Address address = new Address("서울", "강가" + i, "123-123");
+            List<OrderItemQueryDto> items = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                items.add(new OrderItemQueryDto(i, "item" + j, 10000 + j, j + 1));
+            }
+            orderQueryDtos.add(new OrderQueryDto(i, "회원" + i, orderDate.plusSeconds(i), OrderStatus.ORDER, address, items));
+            orderSimpleQueryDtos.add(new OrderSimpleQueryDto(i, "회원" + i, orderDate.plusSeconds(i), OrderStatus.ORDER, address));
+        }
+    }
+
+    @Benchmark
+    public void orderQueryDtos() throws IOException {
+        objectMapper.writeValue(NULL_OUTPUT, orderQueryDtos);
+    }
+
+    @Benchmark
+    public void orderSimpleQueryDtos() throws IOException {
+        objectMapper.writeValue(NULL_OUTPUT, orderSimpleQueryDtos);
+    }
+}
@@ -0,0 +1,103 @@
+package com.kwanghoon.jpashop.bench;
+
+import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.repository.OrderRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 가벼운 조회 모드(ReadMode) 전후 비교: findAllWithItem, findAllWithMemberDelivery
+* 조회 API 처럼 읽기 전용이 아닌 영속성 컨텍스트에서 조회한다. (OSIV, readOnly 트랜잭션은 스프링이 이미 읽기 전용으로 설정)
+*
+* 결과 보는 법
+* - 지연 시간: Score (ms/op)
+* - 할당량: gc.alloc.rate.norm (B/op)
+* - 영속성 컨텍스트 유지 힙: retainedBytes (조회 직후 GC 후 사용 힙 - 조회 전 사용 힙, op 당 평균)
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadModeBenchmark {
+
+    @Param({"10000", "100000"})
+    public int orders;
+
+    @Param({"false", "true"})
+    public boolean lightweight;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private TransactionTemplate tx;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class HeapCounter {
+        private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+        public long retainedBytes;
+
+        long usedAfterGc() {
+            System.gc();
+            return MEMORY.getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = OrderDataState.boot(orders, "jpashop.query.lightweight-read=" + lightweight);
+        orderRepository = context.getBean(OrderRepository.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void findAllWithItem(Blackhole bh) {
+        tx.execute(status -> {
+            bh.consume(orderRepository.findAllWithItem());
+            return null;
+        });
+    }
+
+    @Benchmark
+    public void findAllWithMemberDelivery(Blackhole bh) {
+        tx.execute(status -> {
+            bh.consume(orderRepository.findAllWithMemberDelivery());
+            return null;
+        });
+    }
+
+    /* 영속성 컨텍스트가 살아 있는 동안의 힙 (System.gc 를 부르므로 지연 시간은 보지 않는다.) */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void retainedHeap_findAllWithItem(HeapCounter heap, Blackhole bh) {
+        tx.execute(status -> {
+            long before = heap.usedAfterGc();
+            List<Order> result = orderRepository.findAllWithItem();
+            heap.retainedBytes += heap.usedAfterGc() - before;
+            bh.consume(result);
+            return null;
+        });
+    }
+}
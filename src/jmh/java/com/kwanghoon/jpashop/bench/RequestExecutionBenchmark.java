@@ -0,0 +1,80 @@
+package com.kwanghoon.jpashop.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 요청 실행 방식 비교 (RequestExecutionConfig): platform vs elastic
+* JMH 스레드 하나가 HTTP 클라이언트 하나 (동시 요청 256 개), 응답 본문까지 읽는다.
+*
+* 결과 보는 법
+* - 처리량: Throughput (ops/ms)
+* - 지연 시간: SampleTime 의 p0.99
+* - 거절(503) 수는 응답 코드로 세지 않고 서버의 jpashop.db.concurrency.rejected 로 본다.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class RequestExecutionBenchmark {
+
+    @Param({"platform", "elastic"})
+    public String mode;
+
+    /* 커넥션 풀(기본 10)과 같게 */
+    @Param({"10"})
+    public int dbConcurrency;
+
+    private ConfigurableApplicationContext context;
+    private URL membersPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = OrderDataState.boot(10_000,
+            "spring.main.web-application-type=servlet",
+            "server.port=0",
+            "jpashop.web.execution.mode=" + mode,
+            "jpashop.web.db-concurrency.limit=" + dbConcurrency,
+            "jpashop.web.db-concurrency.wait-timeout-millis=10000");
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        membersPage = new URL("http://localhost:" + port + "/api/v3/members?offset=500&limit=100");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int membersPage() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) membersPage.openConnection();
+        int status = connection.getResponseCode();
+        byte[] buffer = new byte[8192];
+        int total = 0;
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                for (int read; (read = in.read(buffer)) != -1; ) {
+                    total += read;
+                }
+            }
+        }
+        return status + total;
+    }
+}
@@ -0,0 +1,227 @@
+package com.kwanghoon.jpashop;
+
+import com.kwanghoon.jpashop.repository.OrderSummaryRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+* 대량 테스트 데이터 생성기 (generate 프로필)
+* InitDb 는 주문 2건 뿐이라 운영 규모의 성능 문제를 재현할 수 없다.
+* JDBC batch insert 로 회원, 상품(Book/Album/Movie), 카테고리, 주문을 대량으로 만든다.
+*
+* 실행
+* - ./gradlew generateData
+* - 또는 --spring.profiles.active=generate 로 애플리케이션 실행
+*
+* 쏠림(skew) 설정
+* - hotItemRatio 비율의 상품이 주문 상품의 hotItemShare 만큼을 차지한다. (인기 상품)
+* - heavyMemberRatio 비율의 회원이 주문의 heavyMemberShare 만큼을 차지한다. (주문 많은 회원)
+*
+* 식별자는 1부터 직접 채우고, 끝나면 hibernate_sequence 를 그 다음 값으로 맞춘다. (jpashop.id.strategy=sequence 용)
+* snowflake 식별자는 2020년 이후 시각 기준이라 1부터 채운 값과 겹치지 않는다.
+*/
+@Slf4j
+@Component
+@Profile("generate")
+@RequiredArgsConstructor
+public class DataGenerator implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GeneratorProperties properties;
+    private final OrderSummaryRepository orderSummaryRepository;
+
+    private long nextId = 1;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Random random = new Random(properties.getSeed());
+        long start = System.nanoTime();
+
+        long firstMemberId = nextId;
+        insertMembers();
+        long firstItemId = nextId;
+        insertItems();
+        insertCategories(firstItemId, random);
+        long rows = insertOrders(firstMemberId, firstItemId, random);
+        rows += rebuildOrderSummary();
+
+        jdbcTemplate.execute("alter sequence hibernate_sequence restart with " + nextId);
+
+        rows += properties.getMembers() + properties.getItems();
+        if (properties.getCategories() > 0) {
+            rows += properties.getCategories() + properties.getItems(); // category + category_item
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        log.info("데이터 생성 완료 rows={} time={}s rows/s={}", rows, String.format("%.1f", seconds), (long) (rows / seconds));
+    }
+
+    private void insertMembers() {
+        long start = System.nanoTime();
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < properties.getMembers(); i++) {
+            batch.add(new Object[]{nextId++, "member" + i, "서울", "street" + i, String.format("%05d", i % 100000), 0L});
+            flushIfFull("insert into member (member_id, name, city, street, zipcode, version) values (?, ?, ?, ?, ?, ?)", batch, false);
+        }
+        flushIfFull("insert into member (member_id, name, city, street, zipcode, version) values (?, ?, ?, ?, ?, ?)", batch, true);
+        report("member", properties.getMembers(), start);
+    }
+
+    /* Book, Album, Movie 를 번갈아 만든다. */
+    private void insertItems() {
+        long start = System.nanoTime();
+        String sql = "insert into item (dtype, item_id, name, price, stock_quantity, version, author, isbn, artist, etc, director, actor) " +
+            "values (?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < properties.getItems(); i++) {
+            long id = nextId++;
+            int price = 1000 * (1 + i % 50);
+            switch (i % 3) {
+                case 0:
+                    batch.add(new Object[]{"Book", id, "book" + i, price, properties.getStockQuantity(), "author" + i, "isbn" + i, null, null, null, null});
+                    break;
+                case 1:
+                    batch.add(new Object[]{"ALBUM", id, "album" + i, price, properties.getStockQuantity(), null, null, "artist" + i, null, null, null});
+                    break;
+                default:
+                    batch.add(new Object[]{"MOVIE", id, "movie" + i, price, properties.getStockQuantity(), null, null, null, null, "director" + i, "actor" + i});
+            }
+            flushIfFull(sql, batch, false);
+        }
+        flushIfFull(sql, batch, true);
+        report("item", properties.getItems(), start);
+    }
+
+    /* 루트 카테고리 sqrt(n) 개, 나머지는 임의의 루트 아래 자식. 상품은 카테고리 1개에 연결 */
+    private void insertCategories(long firstItemId, Random random) {
+        if (properties.getCategories() <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int rootCount = Math.max(1, (int) Math.sqrt(properties.getCategories()));
+        long firstCategoryId = nextId;
+
+        List<Object[]> categories = new ArrayList<>();
+        for (int i = 0; i < properties.getCategories(); i++) {
+            Long parentId = i < rootCount ? null : firstCategoryId + random.nextInt(rootCount);
+            categories.add(new Object[]{nextId++, "category" + i, parentId});
+            flushIfFull("insert into category (category_id, name, parent_id) values (?, ?, ?)", categories, false);
+        }
+        flushIfFull("insert into category (category_id, name, parent_id) values (?, ?, ?)", categories, true);
+
+        List<Object[]> categoryItems = new ArrayList<>();
+        for (int i = 0; i < properties.getItems(); i++) {
+            categoryItems.add(new Object[]{firstCategoryId + random.nextInt(properties.getCategories()), firstItemId + i});
+            flushIfFull("insert into category_item (category_id, item_id) values (?, ?)", categoryItems, false);
+        }
+        flushIfFull("insert into category_item (category_id, item_id) values (?, ?)", categoryItems, true);
+        report("category", properties.getCategories() + properties.getItems(), start);
+    }
+
+    private long insertOrders(long firstMemberId, long firstItemId, Random random) {
+        long start = System.nanoTime();
+        int hotItems = Math.max(1, (int) (properties.getItems() * properties.getHotItemRatio()));
+        int heavyMembers = Math.max(1, (int) (properties.getMembers() * properties.getHeavyMemberRatio()));
+        LocalDateTime baseDate = LocalDateTime.now().minusSeconds(properties.getOrders());
+
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        long orderItemCount = 0;
+
+        for (int i = 0; i < properties.getOrders(); i++) {
+            long memberId = firstMemberId + pick(random, properties.getMembers(), heavyMembers, properties.getHeavyMemberShare());
+            long deliveryId = nextId++;
+            long orderId = nextId++;
+
+            deliveries.add(new Object[]{deliveryId, "서울", "street" + memberId, "12345", "READY", 0L});
+            orders.add(new Object[]{orderId, memberId, deliveryId, Timestamp.valueOf(baseDate.plusSeconds(i)), "ORDER", 0L});
+
+            int lines = 1 + random.nextInt(properties.getMaxItemsPerOrder());
+            for (int j = 0; j < lines; j++) {
+                long itemId = firstItemId + pick(random, properties.getItems(), hotItems, properties.getHotItemShare());
+                orderItems.add(new Object[]{nextId++, itemId, orderId, 1000 * (1 + (int) (itemId % 50)), 1 + random.nextInt(3)});
+            }
+            orderItemCount += lines;
+
+            if (orders.size() >= properties.getBatchSize()) {
+                flushOrders(deliveries, orders, orderItems);
+            }
+        }
+        flushOrders(deliveries, orders, orderItems);
+
+        long rows = properties.getOrders() * 2L + orderItemCount;
+        report("orders/delivery/order_item", rows, start);
+        return rows;
+    }
+
+    /* 주문 목록 읽기 모델 (order_summary) 은 주문을 다 넣은 뒤 한 번에 만든다. */
+    private long rebuildOrderSummary() {
+        long start = System.nanoTime();
+        int rows = orderSummaryRepository.rebuild();
+        report("order_summary", rows, start);
+        return rows;
+    }
+
+    /* share 확률로 앞쪽 hot 개 중에서, 나머지는 전체에서 고른다. (hot 은 1 ~ total) */
+    static int pick(Random random, int total, int hot, double share) {
+        int hotCount = Math.min(Math.max(hot, 1), total);
+        return random.nextDouble() < share ? random.nextInt(hotCount) : random.nextInt(total);
+    }
+
+    private void flushOrders(List<Object[]> deliveries, List<Object[]> orders, List<Object[]> orderItems) {
+        flushIfFull("insert into delivery (delivery_id, city, street, zipcode, status, version) values (?, ?, ?, ?, ?, ?)", deliveries, true);
+        flushIfFull("insert into orders (order_id, member_id, delivery_id, order_date, status, version) values (?, ?, ?, ?, ?, ?)", orders, true);
+        flushIfFull("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, ?, ?)", orderItems, true);
+    }
+
+    private void flushIfFull(String sql, List<Object[]> batch, boolean force) {
+        if (batch.isEmpty() || (!force && batch.size() < properties.getBatchSize())) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, batch);
+        batch.clear();
+    }
+
+    private void report(String table, long rows, long start) {
+        double seconds = Math.max((System.nanoTime() - start) / 1_000_000_000.0, 0.001);
+        log.info("{} rows={} rows/s={}", table, rows, (long) (rows / seconds));
+    }
+
+    /* 잘못된 값이면 생성을 시작하기 전에 (애플리케이션 시작 시) 실패한다. */
+    @Getter @Setter
+    @Component
+    @Validated
+    @ConfigurationProperties(prefix = "jpashop.generator")
+    public static class GeneratorProperties {
+        @Min(1) private int members = 10_000;
+        @Min(1) private int items = 1_000;
+        @Min(0) private int categories = 100;
+        @Min(0) private int orders = 100_000;
+        @Min(1) private int maxItemsPerOrder = 5;
+        @Min(0) private int stockQuantity = 1_000_000;
+        @DecimalMin("0") @DecimalMax("1") private double hotItemRatio = 0.01;     // 인기 상품 비율
+        @DecimalMin("0") @DecimalMax("1") private double hotItemShare = 0.5;      // 주문 상품 중 인기 상품 비중
+        @DecimalMin("0") @DecimalMax("1") private double heavyMemberRatio = 0.01; // 주문 많은 회원 비율
+        @DecimalMin("0") @DecimalMax("1") private double heavyMemberShare = 0.3;  // 전체 주문 중 이 회원들의 비중
+        @Min(1) private int batchSize = 1_000;
+        private long seed = 42;
+    }
+}
@@ -3,6 +3,7 @@ package com.kwanghoon.jpashop;
 import com.kwanghoon.jpashop.domain.*;
 import com.kwanghoon.jpashop.domain.item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,7 +11,9 @@ import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 
 
+/* 대량 데이터가 필요하면 generate 프로필 사용 (DataGenerator) */
 @Component
+@Profile("!generate")
 @RequiredArgsConstructor
 public class InitDb {
 
@@ -45,10 +48,11 @@ public class InitDb {
             delivery.setAddress(member.getAddress());
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.of(order));
         }
 
         public void dbInit2() {
-            Member member = createMember("userA", new Address("진주", "2", "2222"));
+            Member member = createMember("userB", new Address("진주", "2", "2222"));
             em.persist(member);
 
             Book book1 = createBook("SPRING1 BOOk", 10000, 100);
@@ -64,6 +68,7 @@ public class InitDb {
             delivery.setAddress(member.getAddress());
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.of(order));
         }
 
         private Member createMember(String name, Address address) {
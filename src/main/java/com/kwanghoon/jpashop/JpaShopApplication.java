@@ -1,10 +1,14 @@
 package com.kwanghoon.jpashop;
 
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import com.kwanghoon.jpashop.controller.json.OrderJsonModule;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @SpringBootApplication
 public class JpaShopApplication {
     public static void main(String[] args) {
@@ -15,4 +19,11 @@ public class JpaShopApplication {
     Hibernate5Module hibernate5Module() {
         return new Hibernate5Module();
     }
+
+    /* 주문 조회 DTO 전용 serializer (OrderJsonModule) */
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.json", name = "order-serializers", havingValue = "true", matchIfMissing = true)
+    OrderJsonModule orderJsonModule() {
+        return new OrderJsonModule();
+    }
 }
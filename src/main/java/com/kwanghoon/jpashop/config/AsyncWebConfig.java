@@ -0,0 +1,45 @@
+package com.kwanghoon.jpashop.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+
+/*
+* 비동기 응답(StreamingResponseBody, Callable) 실행 스레드 풀
+* 요청 스레드는 바로 반환되고 응답 본문은 이 풀에서 쓴다. (OrderStreamApiController)
+* 스트리밍 하나가 커넥션 하나를 끝까지 잡으므로 pool-size 는 커넥션 풀보다 작게 둔다.
+* 풀과 큐가 모두 차면 거절(TaskRejectedException)
+*/
+@Configuration
+public class AsyncWebConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor webAsyncExecutor;
+    private final long timeoutMillis;
+
+    public AsyncWebConfig(@Value("${jpashop.web.async.pool-size:4}") int poolSize,
+                          @Value("${jpashop.web.async.queue-capacity:100}") int queueCapacity,
+                          @Value("${jpashop.web.async.timeout-millis:300000}") long timeoutMillis) {
+        this.webAsyncExecutor = new ThreadPoolTaskExecutor();
+        this.webAsyncExecutor.setCorePoolSize(poolSize);
+        this.webAsyncExecutor.setMaxPoolSize(poolSize);
+        this.webAsyncExecutor.setQueueCapacity(queueCapacity);
+        this.webAsyncExecutor.setThreadNamePrefix("web-async-");
+        this.webAsyncExecutor.initialize(); // 빈으로 등록하면 스프링 부트 기본 applicationTaskExecutor 가 빠지므로 직접 관리
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(webAsyncExecutor);
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+
+    @PreDestroy
+    public void close() {
+        webAsyncExecutor.shutdown();
+    }
+}
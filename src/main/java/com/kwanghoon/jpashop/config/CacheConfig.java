@@ -0,0 +1,46 @@
+package com.kwanghoon.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URISyntaxException;
+
+/*
+* 하이버네이트 2차 캐시 (JCache + Ehcache3)
+* - ehcache.xml 로 CacheManager 를 직접 만들어 하이버네이트에 넘긴다.
+* - 같은 CacheManager 로 region 별 put/eviction 메트릭을 등록 (cache.* 메트릭, JMX 통계 사용)
+* - hit/miss 는 hibernate statistics 로 수집 (hibernate.second.level.cache.*)
+*/
+@Configuration
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() throws URISyntaxException {
+        return Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider")
+            .getCacheManager(getClass().getResource("/ehcache.xml").toURI(), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> bindCacheMetrics(registry, hibernateCacheManager);
+    }
+
+    private void bindCacheMetrics(MeterRegistry registry, CacheManager cacheManager) {
+        for (String name : cacheManager.getCacheNames()) {
+            JCacheMetrics.monitor(registry, cacheManager.getCache(name), Tags.of("cacheManager", "hibernate"));
+        }
+    }
+}
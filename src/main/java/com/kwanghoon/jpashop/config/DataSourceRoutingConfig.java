@@ -0,0 +1,137 @@
+package com.kwanghoon.jpashop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+* 읽기 전용 트랜잭션을 복제본으로 보내는 DataSource (jpashop.datasource.routing.enabled=true)
+* primary 는 spring.datasource.* 로, 복제본은 jpashop.datasource.routing.replicas 로 설정한다.
+* 커넥션 풀은 대상마다 따로 만들고 풀 이름(primary, replica-이름)으로 hikaricp.* 메트릭이 나온다.
+*
+* OSIV 와 함께 쓸 수 없다. (spring.jpa.open-in-view=false 가 아니면 시작하지 않는다.)
+* OSIV 는 요청 전체에 EntityManager 하나를 쓰고, Hibernate 는 처음 얻은 커넥션을 EntityManager 가 닫힐 때까지 잡고 있다.
+* (DELAYED_ACQUISITION_AND_HOLD) 첫 트랜잭션이 고른 대상(복제본일 수도 있다)이 같은 요청의 이후 트랜잭션에도 그대로 쓰인다.
+*
+* 로컬 테스트 ex) H2 두 개
+* jpashop.datasource.routing.replicas[0].name=h2-replica
+* jpashop.datasource.routing.replicas[0].url=jdbc:h2:tcp://localhost/~/jpashop-replica
+*/
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingConfig.RoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private RoutingDataSource routingDataSource;
+
+    public DataSourceRoutingConfig(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException(
+                "jpashop.datasource.routing.enabled=true 는 spring.jpa.open-in-view=false 와 함께 사용해야 합니다.");
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 RoutingProperties routingProperties,
+                                 MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName(RoutingDataSource.PRIMARY);
+        primary.setMetricRegistry(meterRegistry);
+        pools.add(primary);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        Map<String, String> lagQueries = new LinkedHashMap<>();
+        for (Replica replica : routingProperties.getReplicas()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + replica.getName());
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername());
+            dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            dataSource.setInitializationFailTimeout(-1); // 복제본이 내려가 있어도 애플리케이션은 뜬다. (primary 로 대체)
+            dataSource.setMetricRegistry(meterRegistry);
+            pools.add(dataSource);
+            replicas.put(replica.getName(), dataSource);
+            if (replica.getLagQuery() != null) {
+                lagQueries.put(replica.getName(), replica.getLagQuery());
+            }
+        }
+
+        routingDataSource = new RoutingDataSource(primary, replicas, lagQueries,
+            routingProperties.getMaxLagSeconds(), routingProperties.getCheckIntervalMillis(), meterRegistry);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+        pools.forEach(HikariDataSource::close);
+    }
+
+    /* 요청 안에서만 read-your-writes 유지 */
+    static class ReadYourWritesFilter extends OncePerRequestFilter {
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+            RoutingDataSource.openScope();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                RoutingDataSource.closeScope();
+            }
+        }
+    }
+
+    @Getter @Setter
+    @ConfigurationProperties(prefix = "jpashop.datasource.routing")
+    public static class RoutingProperties {
+        private boolean enabled;
+        private long maxLagSeconds = 5;         // 이보다 뒤처진 복제본은 읽기에서 제외
+        private long checkIntervalMillis = 5000; // 복제본 지연, 연결 확인 주기
+        private List<Replica> replicas = new ArrayList<>();
+    }
+
+    @Getter @Setter
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;   // 없으면 spring.datasource 와 같은 값
+        private String password;
+        private int maximumPoolSize = 10;
+        private String lagQuery;   // 지연(초)을 돌려주는 쿼리 ex) PostgreSQL: select extract(epoch from now() - pg_last_xact_replay_timestamp())
+    }
+}
@@ -0,0 +1,126 @@
+package com.kwanghoon.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* DB 를 쓰는 요청 동시 실행 수 제한 (bulkhead)
+* 요청 스레드를 늘려도 (RequestExecutionConfig, elastic) DB 에 동시에 들어가는 요청은 limit 개까지만 둔다.
+* 나머지는 커넥션 풀이 아니라 여기서 기다리고, waitTimeoutMillis 를 넘으면 503 (Retry-After) 으로 바로 돌려준다.
+*
+* - OSIV 가 켜져 있으면 요청 하나가 끝날 때까지 커넥션을 잡으므로, limit 은 커넥션 풀 크기 정도로 둔다.
+* - 비동기 응답 (StreamingResponseBody, CompletableFuture) 은 요청 스레드가 반환되어도 permit 을 잡고 있다가
+*   응답이 끝나면 (AsyncListener onComplete, onTimeout, onError) 반환한다. 스트리밍 조회도 DB 커넥션을 잡기 때문
+*
+* 메트릭
+* - jpashop.db.concurrency.wait: permit 을 기다린 시간
+* - jpashop.db.concurrency.waiting: permit 을 기다리는 요청 수
+* - jpashop.db.concurrency.active: DB 구간을 실행 중인 요청 수
+* - jpashop.db.concurrency.rejected: 기다리다 거절한 요청 수
+*/
+public class DbConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final int limit;
+    private final long waitTimeoutMillis;
+    private final MeterRegistry meterRegistry;
+    private final Timer wait;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public DbConcurrencyLimitFilter(int limit, long waitTimeoutMillis, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(limit, true);
+        this.limit = limit;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.meterRegistry = meterRegistry;
+        this.wait = meterRegistry.timer("jpashop.db.concurrency.wait");
+        meterRegistry.gauge("jpashop.db.concurrency.waiting", waiting);
+        meterRegistry.gauge("jpashop.db.concurrency.active", permits, p -> limit - p.availablePermits());
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        if (!acquire()) {
+            meterRegistry.counter("jpashop.db.concurrency.rejected").increment();
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해 주세요.");
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    /* 비동기 응답이 끝나면 permit 반환, 이벤트가 여러 번 와도 한 번만 */
+    private class ReleaseOnComplete implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this); // startAsync 를 다시 호출하면 리스너가 지워진다.
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private boolean acquire() {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            return permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.kwanghoon.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tomcat.util.threads.TaskQueue;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* 요청 실행 방식 (jpashop.web.execution.mode)
+* - platform: Tomcat 기본 스레드 풀 (server.tomcat.max-threads, 기본 200)
+* - elastic: 스택을 작게 잡은 스레드를 max-threads 까지 늘리는 풀로 요청을 처리한다.
+*            JDBC 에서 블로킹된 요청이 스레드 수에 막히지 않게 하고, DB 동시성은 DbConcurrencyLimitFilter 로 제한한다.
+*            (platform 은 스레드 풀 크기가 곧 동시성 제한이므로 필터를 등록하지 않는다.)
+*
+* Java 8 / Spring Boot 2.1 에는 가상 스레드가 없어서 스레드 수를 늘리고 스택을 줄이는 것으로 대신한다.
+* (Java 21 + Spring Boot 3.2 이상이면 spring.threads.virtual.enabled=true 로 바꾸고 이 풀은 지운다.)
+*
+* 비교: ./gradlew jmh -Pjmh.includes=RequestExecutionBenchmark (처리량, p99)
+*/
+@Slf4j
+@Configuration
+public class RequestExecutionConfig {
+
+    private ThreadPoolExecutor elasticExecutor;
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.web.execution", name = "mode", havingValue = "elastic")
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> elasticExecutorCustomizer(
+        @Value("${jpashop.web.execution.elastic.max-threads:2000}") int maxThreads,
+        @Value("${jpashop.web.execution.elastic.stack-size-kb:256}") long stackSizeKb,
+        @Value("${jpashop.web.execution.elastic.keep-alive-seconds:10}") long keepAliveSeconds) {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            elasticExecutor = elasticExecutor(maxThreads, stackSizeKb * 1024, keepAliveSeconds);
+            connector.getProtocolHandler().setExecutor(elasticExecutor);
+            log.info("요청 실행 방식 elastic max-threads={} stack={}KB", maxThreads, stackSizeKb);
+        });
+    }
+
+    /* Tomcat TaskQueue: max 까지는 큐에 쌓지 않고 스레드를 먼저 늘린다. */
+    private static ThreadPoolExecutor elasticExecutor(int maxThreads, long stackSize, long keepAliveSeconds) {
+        TaskQueue queue = new TaskQueue();
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.min(10, maxThreads), maxThreads, keepAliveSeconds, TimeUnit.SECONDS, queue, r -> {
+            Thread thread = new Thread(null, r, "http-elastic-" + sequence.incrementAndGet(), stackSize);
+            thread.setDaemon(true);
+            return thread;
+        });
+        queue.setParent(executor);
+        return executor;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.web.execution", name = "mode", havingValue = "elastic")
+    public FilterRegistrationBean<DbConcurrencyLimitFilter> dbConcurrencyLimitFilter(
+        @Value("${jpashop.web.db-concurrency.limit:10}") int limit,
+        @Value("${jpashop.web.db-concurrency.wait-timeout-millis:1000}") long waitTimeoutMillis,
+        MeterRegistry meterRegistry) {
+        FilterRegistrationBean<DbConcurrencyLimitFilter> registration =
+            new FilterRegistrationBean<>(new DbConcurrencyLimitFilter(limit, waitTimeoutMillis, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (elasticExecutor != null) {
+            elasticExecutor.shutdown();
+        }
+    }
+}
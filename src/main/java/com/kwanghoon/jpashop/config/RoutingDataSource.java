@@ -0,0 +1,178 @@
+package com.kwanghoon.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* 읽기/쓰기 DataSource 라우팅
+* - readOnly 트랜잭션: 정상(healthy) 복제본 중 하나 (round robin)
+* - 그 외: primary
+* - 같은 요청에서 쓰기 트랜잭션 이후의 읽기는 primary (read-your-writes)
+*   범위는 openScope ~ closeScope (ReadYourWritesFilter, 요청 단위), 범위 밖(배치, 스케줄러 스레드 등)에서는 기록하지 않는다.
+* - 지연(lag)이 maxLagSeconds 를 넘거나 연결이 안 되는 복제본은 제외, 남은 복제본이 없으면 primary
+*
+* 트랜잭션 시작 시점에는 readOnly 여부가 아직 설정되지 않으므로 LazyConnectionDataSourceProxy 로 감싸서
+* 첫 쿼리를 실행할 때 커넥션을 고르게 해야 한다. (DataSourceRoutingConfig)
+*
+* 메트릭
+* - jpashop.datasource.route: 커넥션을 고른 횟수 (target, reason = write | read | sticky | fallback)
+* - jpashop.datasource.replica.lag: 복제본 지연 (초), jpashop.datasource.replica.healthy: 1 이면 사용 가능
+*/
+@Slf4j
+public class RoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    /* null: 범위 밖, FALSE: 범위 안 쓰기 없음, TRUE: 범위 안 쓰기 있음 */
+    private static final ThreadLocal<Boolean> WRITTEN = new ThreadLocal<>();
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final MeterRegistry meterRegistry;
+    private final long maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    /*
+    * @param lagQueries 복제본별 지연(초)을 돌려주는 쿼리, 없으면 연결 확인만 한다.
+    */
+    public RoutingDataSource(DataSource primary,
+                             Map<String, DataSource> replicaDataSources,
+                             Map<String, String> lagQueries,
+                             long maxLagSeconds,
+                             long checkIntervalMillis,
+                             MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.maxLagSeconds = maxLagSeconds;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicaDataSources.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource, lagQueries.get(name));
+            replicas.add(replica);
+            targets.put(name, dataSource);
+            meterRegistry.gauge("jpashop.datasource.replica.lag", Tags.of("replica", name), replica, r -> r.lagSeconds);
+            meterRegistry.gauge("jpashop.datasource.replica.healthy", Tags.of("replica", name), replica, r -> r.healthy ? 1 : 0);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet(); // 빈으로 등록하지 않으므로 직접 호출
+
+        checkReplicas();
+        if (checkIntervalMillis > 0 && !replicas.isEmpty()) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    /* read-your-writes 범위 시작 (ReadYourWritesFilter), 반드시 closeScope 와 짝을 맞춘다. */
+    public static void openScope() {
+        WRITTEN.set(Boolean.FALSE);
+    }
+
+    public static void closeScope() {
+        WRITTEN.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (WRITTEN.get() != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                WRITTEN.set(Boolean.TRUE);
+            }
+            return route(PRIMARY, "write");
+        }
+        if (Boolean.TRUE.equals(WRITTEN.get())) {
+            return route(PRIMARY, "sticky");
+        }
+        Replica replica = nextHealthyReplica();
+        return replica == null ? route(PRIMARY, "fallback") : route(replica.name, "read");
+    }
+
+    private Replica nextHealthyReplica() {
+        int size = replicas.size();
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private String route(String target, String reason) {
+        meterRegistry.counter("jpashop.datasource.route", "target", target, "reason", reason).increment();
+        return target;
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                double lag = 0;
+                if (replica.lagQuery != null) {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet rs = statement.executeQuery(replica.lagQuery)) {
+                        lag = rs.next() ? rs.getDouble(1) : Double.MAX_VALUE;
+                    }
+                } else if (!connection.isValid(1)) {
+                    throw new IllegalStateException("연결이 유효하지 않습니다.");
+                }
+                replica.lagSeconds = lag;
+                setHealthy(replica, lag <= maxLagSeconds);
+            } catch (Exception e) {
+                replica.lagSeconds = Double.NaN;
+                setHealthy(replica, false);
+                log.debug("복제본 상태 확인 실패 replica={}", replica.name, e);
+            }
+        }
+    }
+
+    private void setHealthy(Replica replica, boolean healthy) {
+        if (replica.healthy != healthy) {
+            log.warn("복제본 {} -> {} (lag={}s)", replica.name, healthy ? "사용" : "제외", replica.lagSeconds);
+        }
+        replica.healthy = healthy;
+    }
+
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    private static class Replica {
+        final String name;
+        final DataSource dataSource;
+        final String lagQuery;
+        volatile boolean healthy;
+        volatile double lagSeconds = Double.NaN;
+
+        Replica(String name, DataSource dataSource, String lagQuery) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.lagQuery = lagQuery;
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.kwanghoon.jpashop.controller;
 
 import com.kwanghoon.jpashop.domain.Member;
+import com.kwanghoon.jpashop.repository.member.query.MemberQueryDto;
+import com.kwanghoon.jpashop.repository.member.query.MemberQueryRepository;
 import com.kwanghoon.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,6 +22,16 @@ import java.util.stream.Collectors;
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final MemberQueryRepository memberQueryRepository;
+    private final NdjsonWriter ndjsonWriter;
+
+    /* 회원 목록 한 페이지 최대 건수 */
+    @Value("${jpashop.member.list.max-limit:1000}")
+    private int maxLimit;
+
+    /* NDJSON export 시 몇 건마다 응답을 flush 할지 */
+    @Value("${jpashop.member.list.flush-size:1000}")
+    private int exportFlushSize;
 
     /*
     * 문제점
@@ -69,6 +85,43 @@ public class MemberApiController {
         return new Result(collect);
     }
 
+    /*
+    * V3
+    * 엔티티 대신 id, name 만 DTO 로 조회 + 페이징 (limit 은 최대 maxLimit)
+    * - afterId 가 있으면 keyset 페이징 (다음 페이지는 응답의 nextCursor 를 afterId 로 넘긴다.)
+    * - 없으면 offset 페이징
+    */
+    @GetMapping("/api/v3/members")
+    public MemberPage memberV3(
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "offset", defaultValue = "0") int offset,
+        @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("offset 은 0 이상, limit 은 1 이상이어야 합니다. offset=" + offset + ", limit=" + limit);
+        }
+
+        int pageSize = Math.min(limit, maxLimit);
+        List<MemberQueryDto> members = afterId != null
+            ? memberQueryRepository.findPageAfter(afterId, pageSize)
+            : memberQueryRepository.findPage(offset, pageSize);
+
+        Long nextCursor = members.size() < pageSize ? null : members.get(members.size() - 1).getId();
+        return new MemberPage(members, nextCursor);
+    }
+
+    /*
+    * V3 스트리밍 (NDJSON)
+    * 전체 회원을 DB 커서에서 읽는 대로 한 줄에 한 명씩 내려준다. (힙 사용량 일정)
+    */
+    @GetMapping(value = "/api/v3/members/export", produces = NdjsonWriter.CONTENT_TYPE)
+    public void memberV3_export(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonWriter.CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ndjsonWriter.write(response.getOutputStream(), exportFlushSize, memberQueryRepository::streamAll);
+    }
+
     @PutMapping("/api/v2/members/{id}")
     public UpdateMemberResponse updateMeberV2(
         @PathVariable("id") Long id,
@@ -87,6 +140,13 @@ public class MemberApiController {
         private String name;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class MemberPage {
+        private List<MemberQueryDto> data;
+        private Long nextCursor;
+    }
+
     @Data
     @AllArgsConstructor
     static class Result<T> {
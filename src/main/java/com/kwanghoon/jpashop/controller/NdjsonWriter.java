@@ -0,0 +1,61 @@
+package com.kwanghoon.jpashop.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/*
+* NDJSON 응답 쓰기 (회원 export, 주문 V6 export, 대시보드 스트리밍)
+* source 가 넘겨주는 값을 한 줄에 JSON 하나씩 쓰고, flushSize 건마다 flush 해서 chunk 단위로 전송한다.
+* 값마다 flush 하지 않도록 FLUSH_AFTER_WRITE_VALUE 를 끄고, 줄바꿈은 직접 쓴다.
+*/
+@Component
+public class NdjsonWriter {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /* 요청 스레드에서 바로 쓴다. (source 가 DB 커서를 읽는 동안 응답도 나간다.) */
+    public <T> void write(OutputStream out, int flushSize, Consumer<Consumer<T>> source) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        int[] written = {0};
+        try {
+            source.accept(value -> {
+                try {
+                    writer.writeValue(generator, value);
+                    generator.writeRaw('\n');
+                    if (++written[0] % flushSize == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+
+    /* 비동기 풀에서 쓴다. (AsyncWebConfig) */
+    public <T> StreamingResponseBody stream(int flushSize, Consumer<Consumer<T>> source) {
+        return out -> write(out, flushSize, source);
+    }
+}
@@ -4,21 +4,46 @@ import com.kwanghoon.jpashop.domain.Address;
 import com.kwanghoon.jpashop.domain.Order;
 import com.kwanghoon.jpashop.domain.OrderItem;
 import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.repository.OrderCursor;
 import com.kwanghoon.jpashop.repository.OrderRepository;
 import com.kwanghoon.jpashop.repository.OrderSearch;
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatAssembler;
 import com.kwanghoon.jpashop.repository.order.query.OrderFlatDto;
-import com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto;
 import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
 import com.kwanghoon.jpashop.repository.order.query.OrderQueryRepository;
+import com.kwanghoon.jpashop.service.OrderCommand;
+import com.kwanghoon.jpashop.service.OrderFacade;
+import com.kwanghoon.jpashop.service.OrderIngestionService;
+import com.kwanghoon.jpashop.service.OrderQueryService;
+import com.kwanghoon.jpashop.service.OrderResult;
+import com.kwanghoon.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.stream.Collectors.*;
 
@@ -75,6 +100,23 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderQueryService orderQueryService;
+    private final OrderService orderService;
+    private final OrderFacade orderFacade;
+    private final OrderIngestionService orderIngestionService;
+    private final NdjsonWriter ndjsonWriter;
+
+    /* NDJSON export 시 몇 건마다 응답을 flush 할지 */
+    @Value("${jpashop.order.export.flush-size:100}")
+    private int exportFlushSize;
+
+    /* 대량 주문 한 번에 받을 수 있는 최대 주문 수 */
+    @Value("${jpashop.order.bulk.max-orders:1000}")
+    private int maxBulkOrders;
+
+    /* 주문 검색, V3.1, V3.2 한 페이지 최대 건수 */
+    @Value("${jpashop.order.search.max-limit:1000}")
+    private int maxSearchLimit;
 
     /*
     * V1
@@ -82,7 +124,7 @@ public class OrderApiController {
     */
     @GetMapping("/api/v1/orders")
     public List<Order> orderV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
+        List<Order> all = orderRepository.findAll(new OrderSearch());
 
         /* 프록시 강제 초기화 */
         for (Order order : all) {
@@ -101,7 +143,7 @@ public class OrderApiController {
     */
     @GetMapping("/api/v2/orders")
     public List<OrderDto> orderV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+        List<Order> orders = orderRepository.findAll(new OrderSearch());
 
         return orders
             .stream()
@@ -137,18 +179,104 @@ public class OrderApiController {
     * N+1 --> 1+1 로 최적화
     * xToMany는 fetch join을 사용하지 않기 때문에 데이터 뻥튀기 x --> DB 에서 애플리케이션으로 전송하는 데이터량 감소
     * 페이징이 가능하다 !!!
+    *
+    * 조건부 조회: 페이지 ETag (pageETag), 바뀌지 않았으면 주문 상품을 조회하지 않고 304
     */
     @GetMapping("/api/v3.1/orders")
-    public List<OrderDto> orderV3_page(
+    public ResponseEntity<List<OrderDto>> orderV3_page(
         @RequestParam(value = "offset", defaultValue = "0") int offset,
-        @RequestParam(value = "limit", defaultValue = "100") int limit
+        @RequestParam(value = "limit", defaultValue = "100") int limit,
+        WebRequest webRequest
     ) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset 은 0 이상이어야 합니다. offset=" + offset);
+        }
+        validateLimit(limit);
         List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+        if (webRequest.checkNotModified(pageETag(orders))) {
+            return null; // 304
+        }
 
-        return orders
+        List<OrderDto> collect = orders
+            .stream()
+            .map(OrderDto::new)
+            .collect(toList());
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(collect);
+    }
+
+    /*
+    * V3.2
+    * V3.1 + 키셋(커서) 페이징
+    * offset 대신 (orderDate, order_id) 를 기준으로 다음 페이지를 찾는다.
+    * 응답의 nextCursor 를 다음 요청의 cursor 로 넘기면 된다. (마지막 페이지면 null)
+    *
+    * 장점
+    * 페이지가 깊어져도 앞의 row 를 읽고 버리지 않으므로 응답 시간이 일정
+    * xToMany 는 V3.1 과 동일하게 batch_size 로 조회 --> 페이지당 1+1 쿼리
+    * 조건부 조회는 V3.1 과 같다. (pageETag)
+    */
+    @GetMapping("/api/v3.2/orders")
+    public ResponseEntity<OrderPage> orderV3_cursor(
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "limit", defaultValue = "100") int limit,
+        WebRequest webRequest
+    ) {
+        validateLimit(limit);
+        OrderCursor orderCursor = StringUtils.hasText(cursor) ? OrderCursor.decode(cursor) : null;
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(orderCursor, limit);
+        if (webRequest.checkNotModified(pageETag(orders))) {
+            return null; // 304
+        }
+
+        List<OrderDto> collect = orders
             .stream()
             .map(OrderDto::new)
             .collect(toList());
+
+        String nextCursor = orders.isEmpty() || orders.size() < limit ? null : OrderCursor.of(orders.get(orders.size() - 1)).encode();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(new OrderPage(collect, nextCursor));
+    }
+
+    /*
+    * 페이지 ETag
+    * 이미 페치 조인으로 읽은 주문/회원/배송의 id, version 으로 만든다. (추가 쿼리 없음)
+    * 주문 상품은 주문 후 바뀌지 않으므로 읽지 않는다. -> 상품 이름 변경은 반영되지 않는다. (V5 와 같음)
+    */
+    private static String pageETag(List<Order> orders) {
+        StringBuilder sb = new StringBuilder();
+        for (Order order : orders) {
+            sb.append(order.getId()).append(':').append(order.getVersion())
+                .append(':').append(order.getMember().getVersion())
+                .append(':').append(order.getDelivery().getVersion()).append(',');
+        }
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /* 페이지 크기는 1 ~ maxSearchLimit */
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > maxSearchLimit) {
+            throw new IllegalArgumentException("limit 은 1 ~ " + maxSearchLimit + " 사이여야 합니다. limit=" + limit);
+        }
+    }
+
+    /*
+    * 주문 검색 (회원 이름 접두어, 주문 상태) + 페이징
+    * count=true 일 때만 전체 건수 조회 쿼리를 실행한다.
+    * xToMany 는 V3.1 과 동일하게 batch_size 로 조회
+    */
+    @GetMapping("/api/v3.1/orders/search")
+    public OrderSearchPage orderSearch(
+        @ModelAttribute OrderSearch orderSearch,
+        @RequestParam(value = "count", defaultValue = "false") boolean count
+    ) {
+        orderSearch.setLimit(Math.min(orderSearch.getLimit(), maxSearchLimit));
+        List<OrderDto> collect = orderRepository.findAll(orderSearch)
+            .stream()
+            .map(OrderDto::new)
+            .collect(toList());
+
+        Long totalCount = count ? orderRepository.count(orderSearch) : null;
+        return new OrderSearchPage(collect, totalCount);
     }
 
     /*
@@ -181,10 +309,37 @@ public class OrderApiController {
     *
     * 단점
     * 쿼리 수 증가 (1 + 1)
+    *
+    * 조건부 조회 (ETag)
+    * 주문 목록 버전(주문 요약의 건수, version 합계)으로 ETag 를 만들고, If-None-Match 가 같으면 목록을 조회하지 않고 304
+    * 상품 이름 변경은 ETag 에 반영되지 않는다. (OrderQueryRepository.findVersionSummary)
     */
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> orderV5(){
-        return orderQueryRepository.findAllByDto_optimization();
+    public ResponseEntity<List<OrderQueryDto>> orderV5(WebRequest webRequest){
+        if (webRequest.checkNotModified(orderQueryRepository.findVersionSummary().fingerprint())) {
+            return null; // 304
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .body(orderQueryRepository.findAllByDto_optimization());
+    }
+
+    /*
+    * V5 단건
+    * ETag = 주문 id + 주문/회원/배송 version, 바뀌지 않았으면 주문 상품을 조회하지 않고 304
+    */
+    @GetMapping("/api/v5/orders/{orderId}")
+    public ResponseEntity<OrderQueryDto> orderV5_one(@PathVariable("orderId") Long orderId, WebRequest webRequest) {
+        String version = orderQueryRepository.findVersion(orderId).orElse(null);
+        if (version == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(orderId + "-" + version)) {
+            return null; // 304
+        }
+        return orderQueryRepository.findOrderQueryDto(orderId)
+            .map(order -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(order))
+            .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /*
@@ -203,13 +358,170 @@ public class OrderApiController {
     public List<OrderQueryDto> orderV6(){
         List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
 
+        /* order id 순으로 정렬된 row 를 한 번에 훑으면서 주문 단위로 묶는다. (groupingBy 대신) */
+        return OrderFlatAssembler.assemble(flats);
+    }
 
-        return flats.stream()
-            .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
-                    o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()), mapping(o -> new OrderItemQueryDto(o.getOrderId(),
-                o.getItemName(), o.getOrderPrice(), o.getCount()), toList()))).entrySet().stream()
-            .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
-            .collect(toList());
+    /*
+    * V6 스트리밍 (NDJSON)
+    * 전체 주문을 List 로 만들지 않고, DB 커서에서 읽는 대로 주문 한 건씩 한 줄의 JSON 으로 바로 내려준다.
+    * flushSize 건마다 응답을 flush 해서 chunk 단위로 전송
+    *
+    * 장점
+    * 대량 export 에서도 힙 사용량이 일정 (현재 주문 1건 + 응답 버퍼)
+    * 클라이언트는 전체 응답을 기다리지 않고 줄 단위로 처리 가능
+    */
+    @GetMapping(value = "/api/v6/orders/export", produces = NdjsonWriter.CONTENT_TYPE)
+    public void orderV6_export(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonWriter.CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ndjsonWriter.write(response.getOutputStream(), exportFlushSize, orderQueryRepository::streamAllByDto_flat);
+    }
+
+    /*
+    * V7
+    * 건수를 보고 V4, V5, V6 중 하나를 자동으로 선택 (OrderQueryService 참고)
+    */
+    @GetMapping("/api/v7/orders")
+    public List<OrderQueryDto> orderV7(){
+        return orderQueryService.findOrders();
+    }
+
+    /*
+    * 단건 주문
+    * 인기 상품에 주문이 몰려 버전(@Version) 충돌이 나면 OrderFacade 가 새 트랜잭션으로 재시도한다.
+    */
+    @PostMapping("/api/v1/orders")
+    public CreateOrderResponse order(@RequestBody CreateOrderRequest request) {
+        if (request.getCount() <= 0) {
+            throw new IllegalArgumentException("주문 수량은 1 이상이어야 합니다.");
+        }
+        return new CreateOrderResponse(orderFacade.order(request.getMemberId(), request.getItemId(), request.getCount()));
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        private Long memberId;
+        private Long itemId;
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+        private Long id;
+    }
+
+    /*
+    * 대량 주문
+    * 주문 여러 건(주문마다 상품 여러 개)을 한 트랜잭션에서 JDBC batch 로 저장한다.
+    * 검증에 실패한 주문은 results 에 실패로 표시되고, 나머지 주문은 그대로 저장된다.
+    */
+    @PostMapping("/api/v1/orders/bulk")
+    public BulkOrderResponse orderBulk(@RequestBody BulkOrderRequest request) {
+        List<OrderCommand> orders = request.getOrders() == null ? new ArrayList<>() : request.getOrders();
+        if (orders.size() > maxBulkOrders) {
+            throw new IllegalArgumentException("한 번에 주문할 수 있는 최대 건수는 " + maxBulkOrders + " 건 입니다.");
+        }
+        List<OrderResult> results = orderService.orderAll(orders);
+        return new BulkOrderResponse(results);
+    }
+
+    /*
+    * 대량 취소
+    * 배송완료, 이미 취소된 주문은 results 에 실패로 표시되고 나머지 주문은 취소된다.
+    */
+    @PostMapping("/api/v1/orders/cancel")
+    public BulkOrderResponse cancelBulk(@RequestBody BulkCancelRequest request) {
+        if (request.getOrderIds().size() > maxBulkOrders) {
+            throw new IllegalArgumentException("한 번에 취소할 수 있는 최대 건수는 " + maxBulkOrders + " 건 입니다.");
+        }
+        return new BulkOrderResponse(orderService.cancelAll(request.getOrderIds()));
+    }
+
+    @Data
+    static class BulkCancelRequest {
+        private List<Long> orderIds = new ArrayList<>();
+    }
+
+    /*
+    * 비동기 주문 접수 (jpashop.order.ingest.enabled=true)
+    * 큐에 넣고 바로 token 을 돌려준다. 결과는 GET /api/v1/orders/async/{token} 으로 조회
+    * 큐가 가득 차면 503
+    */
+    @PostMapping("/api/v1/orders/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public AsyncOrderResponse orderAsync(@RequestBody OrderCommand command) {
+        return new AsyncOrderResponse(orderIngestionService.submitForToken(command));
+    }
+
+    /* 비동기 주문 접수 후 커밋될 때까지 기다린다. (서블릿 스레드는 반납) */
+    @PostMapping("/api/v1/orders/async/wait")
+    public CompletableFuture<OrderResult> orderAsyncAndWait(@RequestBody OrderCommand command) {
+        return orderIngestionService.submit(command);
+    }
+
+    @GetMapping("/api/v1/orders/async/{token}")
+    public ResponseEntity<AsyncOrderStatus> orderAsyncStatus(@PathVariable("token") String token) {
+        return orderIngestionService.find(token)
+            .map(future -> ResponseEntity.ok(new AsyncOrderStatus(token, future)))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class AsyncOrderResponse {
+        private String token;
+    }
+
+    @Getter
+    static class AsyncOrderStatus {
+        private final String token;
+        private final boolean done;
+        private final OrderResult result;
+
+        public AsyncOrderStatus(String token, CompletableFuture<OrderResult> future) {
+            this.token = token;
+            this.done = future.isDone();
+            if (!done) {
+                this.result = null;
+            } else if (future.isCompletedExceptionally()) {
+                this.result = OrderResult.fail("주문 저장에 실패했습니다.");
+            } else {
+                this.result = future.join();
+            }
+        }
+    }
+
+    @Data
+    static class BulkOrderRequest {
+        private List<OrderCommand> orders = new ArrayList<>();
+    }
+
+    @Getter
+    static class BulkOrderResponse {
+        private final int successCount;
+        private final List<OrderResult> results;
+
+        public BulkOrderResponse(List<OrderResult> results) {
+            this.successCount = (int) results.stream().filter(OrderResult::isSuccess).count();
+            this.results = results;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderPage {
+        private List<OrderDto> data;
+        private String nextCursor;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderSearchPage {
+        private List<OrderDto> data;
+        private Long totalCount;
     }
 
     @Data
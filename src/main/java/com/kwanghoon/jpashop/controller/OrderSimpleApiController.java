@@ -5,12 +5,16 @@ import com.kwanghoon.jpashop.domain.Order;
 import com.kwanghoon.jpashop.repository.OrderSearch;
 import com.kwanghoon.jpashop.domain.OrderStatus;
 import com.kwanghoon.jpashop.repository.OrderRepository;
+import com.kwanghoon.jpashop.repository.OrderSummaryRepository;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryRepository;
 import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
-import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,7 +32,9 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
 
-    private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderQueryRepository orderQueryRepository;
+
+    private final OrderSummaryRepository orderSummaryRepository;
 
     /*
     * V1
@@ -42,7 +48,7 @@ public class OrderSimpleApiController {
     @GetMapping("/api/v1/simple-orders")
     public List<Order> orderV1() {
         /* Eager 로 설정 시, JPQL은 SQL로 번역되기 때문에 성능 최적화가 이루어지지 않는다. N+1 문제 발생 */
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
+        List<Order> all = orderRepository.findAll(new OrderSearch());
 
         // Lazy 강제 초기화
         all.forEach(order -> {
@@ -66,7 +72,7 @@ public class OrderSimpleApiController {
     */
     @GetMapping("/api/v2/simple-orders")
     public List<SimpleOrderDto> orderV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+        List<Order> orders = orderRepository.findAll(new OrderSearch());
 
         return orders
             .stream()
@@ -104,10 +110,18 @@ public class OrderSimpleApiController {
     * 2. 필요하면 페치 조인으로 성능을 최적화 한다 -> 대부분의 성능 이슈 해결: V3
     * 3. 그래도 안된다면 DTO로 직접 조회(Select)하는 방법을 사용: V4
     * 4. 최후의 방법은 JPA가 재공하는 네이트브 SQL이나 스프링 JDBC Template을 사용해서 SQL을 직접 사용
+    *
+    * 조건부 조회: 주문 목록 버전으로 ETag, 바뀌지 않았으면 304 (OrderApiController.orderV5 참고)
+    * 조인 대신 주문 요약 테이블(order_summary)을 읽는다. (OrderSummary)
     */
     @GetMapping("/api/v4/simple-orders")
-    public List<OrderSimpleQueryDto> orderV4() {
-        return orderSimpleQueryRepository.findOrderDtos();
+    public ResponseEntity<List<OrderSimpleQueryDto>> orderV4(WebRequest webRequest) {
+        if (webRequest.checkNotModified(orderQueryRepository.findVersionSummary().fingerprint())) {
+            return null; // 304
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .body(orderSummaryRepository.findOrderDtos());
     }
 
 
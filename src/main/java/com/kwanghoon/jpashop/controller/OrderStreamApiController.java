@@ -0,0 +1,54 @@
+package com.kwanghoon.jpashop.controller;
+
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import com.kwanghoon.jpashop.repository.order.stream.OrderStreamQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.function.Consumer;
+
+/*
+* 대시보드용 스트리밍 조회 (NDJSON)
+* V4(/api/v4/simple-orders), V5(/api/v5/orders) 와 같은 DTO 를 한 줄에 하나씩 내려준다.
+*
+* - 요청 스레드는 바로 반환되고, 응답은 비동기 풀(AsyncWebConfig)에서 쓴다.
+* - 배압: 클라이언트가 느리면 소켓 쓰기가 블로킹되고, 그동안 DB 커서도 다음 row 를 읽지 않는다.
+*   -> 전체 건수와 상관없이 메모리 사용량 일정 (fetchSize row + 응답 버퍼)
+* - 조회는 JDBC (OrderStreamQueryRepository), 쓰기는 그대로 JPA
+*
+* Spring Boot 2.1 / Servlet 스택이라 R2DBC, WebFlux 대신 Servlet 비동기 + 블로킹 소켓 쓰기로 배압을 건다.
+*/
+@RestController
+@RequiredArgsConstructor
+public class OrderStreamApiController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
+    private final OrderStreamQueryRepository orderStreamQueryRepository;
+    private final NdjsonWriter ndjsonWriter;
+
+    /* 몇 건마다 응답을 flush 할지 */
+    @Value("${jpashop.order.export.flush-size:100}")
+    private int flushSize;
+
+    @GetMapping(value = "/api/v4/simple-orders/stream", produces = NdjsonWriter.CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> simpleOrdersV4_stream() {
+        return ndjson(orderStreamQueryRepository::streamOrderDtos);
+    }
+
+    @GetMapping(value = "/api/v5/orders/stream", produces = NdjsonWriter.CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> ordersV5_stream() {
+        return ndjson(orderStreamQueryRepository::streamOrderQueryDtos);
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = ndjsonWriter.stream(flushSize, source);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
@@ -0,0 +1,236 @@
+package com.kwanghoon.jpashop.controller.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/*
+* 주문 조회 DTO 전용 JSON serializer (jpashop.json.order-serializers=true)
+* 기본 ObjectMapper 는 DTO 마다 BeanSerializer 로 getter 를 리플렉션 호출하고, 필드 이름을 매번 인코딩하고,
+* LocalDateTime 은 DateTimeFormatter 로 String 을 만든 뒤 쓴다.
+* 대량 목록(V4, V5, V6, 스트리밍)에서는 이 비용이 CPU 프로파일 상위에 나온다.
+*
+* - 필드 이름, OrderStatus 값: SerializedString 으로 미리 인코딩
+* - LocalDateTime: char[] 에 직접 ISO-8601 (ISO_LOCAL_DATE_TIME 과 같은 모양) 로 쓴다.
+* - 하위 DTO(Address, OrderItemQueryDto): serializer 를 찾지 않고 바로 호출
+*
+* 출력은 기본 ObjectMapper 와 같아야 한다. (필드 순서, null, 날짜 형식 / OrderJsonModuleTest)
+* DTO 에 필드를 추가하면 여기도 같이 바꿔야 한다.
+*/
+public class OrderJsonModule extends SimpleModule {
+
+    private static final SerializedString ORDER_ID = new SerializedString("orderId");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString ORDER_DATE = new SerializedString("orderDate");
+    private static final SerializedString ORDER_STATUS = new SerializedString("orderStatus");
+    private static final SerializedString ADDRESS = new SerializedString("address");
+    private static final SerializedString ORDER_ITEM = new SerializedString("orderItem");
+    private static final SerializedString ITEM_NAME = new SerializedString("itemName");
+    private static final SerializedString ORDER_PRICE = new SerializedString("orderPrice");
+    private static final SerializedString COUNT = new SerializedString("count");
+    private static final SerializedString CITY = new SerializedString("city");
+    private static final SerializedString STREET = new SerializedString("street");
+    private static final SerializedString ZIPCODE = new SerializedString("zipcode");
+
+    private static final SerializedString[] STATUS_NAMES = new SerializedString[OrderStatus.values().length];
+
+    static {
+        for (OrderStatus status : OrderStatus.values()) {
+            STATUS_NAMES[status.ordinal()] = new SerializedString(status.name());
+        }
+    }
+
+    public OrderJsonModule() {
+        super("OrderJsonModule");
+        addSerializer(Address.class, AddressSerializer.INSTANCE);
+        addSerializer(OrderItemQueryDto.class, OrderItemQueryDtoSerializer.INSTANCE);
+        addSerializer(OrderQueryDto.class, new OrderQueryDtoSerializer());
+        addSerializer(OrderSimpleQueryDto.class, new OrderSimpleQueryDtoSerializer());
+    }
+
+    static final class AddressSerializer extends StdSerializer<Address> {
+
+        static final AddressSerializer INSTANCE = new AddressSerializer();
+
+        private AddressSerializer() {
+            super(Address.class);
+        }
+
+        @Override
+        public void serialize(Address address, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            g.writeFieldName(CITY);
+            g.writeString(address.getCity());
+            g.writeFieldName(STREET);
+            g.writeString(address.getStreet());
+            g.writeFieldName(ZIPCODE);
+            g.writeString(address.getZipcode());
+            g.writeEndObject();
+        }
+    }
+
+    static final class OrderItemQueryDtoSerializer extends StdSerializer<OrderItemQueryDto> {
+
+        static final OrderItemQueryDtoSerializer INSTANCE = new OrderItemQueryDtoSerializer();
+
+        private OrderItemQueryDtoSerializer() {
+            super(OrderItemQueryDto.class);
+        }
+
+        /* orderId 는 @JsonIgnore */
+        @Override
+        public void serialize(OrderItemQueryDto item, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            g.writeFieldName(ITEM_NAME);
+            g.writeString(item.getItemName());
+            g.writeFieldName(ORDER_PRICE);
+            g.writeNumber(item.getOrderPrice());
+            g.writeFieldName(COUNT);
+            g.writeNumber(item.getCount());
+            g.writeEndObject();
+        }
+    }
+
+    static final class OrderQueryDtoSerializer extends StdSerializer<OrderQueryDto> {
+
+        private final LocalDateTimeWriter dateWriter = new LocalDateTimeWriter();
+
+        private OrderQueryDtoSerializer() {
+            super(OrderQueryDto.class);
+        }
+
+        @Override
+        public void serialize(OrderQueryDto order, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            writeOrderFields(g, provider, dateWriter, order.getOrderId(), order.getName(), order.getOrderDate(), order.getOrderStatus(), order.getAddress());
+            g.writeFieldName(ORDER_ITEM);
+            List<OrderItemQueryDto> items = order.getOrderItem();
+            if (items == null) {
+                g.writeNull();
+            } else {
+                g.writeStartArray();
+                for (int i = 0; i < items.size(); i++) {
+                    OrderItemQueryDto item = items.get(i);
+                    if (item == null) {
+                        g.writeNull();
+                    } else {
+                        OrderItemQueryDtoSerializer.INSTANCE.serialize(item, g, provider);
+                    }
+                }
+                g.writeEndArray();
+            }
+            g.writeEndObject();
+        }
+    }
+
+    static final class OrderSimpleQueryDtoSerializer extends StdSerializer<OrderSimpleQueryDto> {
+
+        private final LocalDateTimeWriter dateWriter = new LocalDateTimeWriter();
+
+        private OrderSimpleQueryDtoSerializer() {
+            super(OrderSimpleQueryDto.class);
+        }
+
+        @Override
+        public void serialize(OrderSimpleQueryDto order, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            writeOrderFields(g, provider, dateWriter, order.getOrderId(), order.getName(), order.getOrderDate(), order.getOrderStatus(), order.getAddress());
+            g.writeEndObject();
+        }
+    }
+
+    /* OrderQueryDto, OrderSimpleQueryDto 공통 필드 */
+    private static void writeOrderFields(JsonGenerator g, SerializerProvider provider, LocalDateTimeWriter dateWriter,
+                                         Long orderId, String name, LocalDateTime orderDate, OrderStatus status, Address address) throws IOException {
+        g.writeFieldName(ORDER_ID);
+        if (orderId == null) {
+            g.writeNull();
+        } else {
+            g.writeNumber(orderId);
+        }
+        g.writeFieldName(NAME);
+        g.writeString(name);
+        g.writeFieldName(ORDER_DATE);
+        if (orderDate == null) {
+            g.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(orderDate, g); // 배열 형식은 기본 serializer 에 맡긴다.
+        } else {
+            dateWriter.write(orderDate, g);
+        }
+        g.writeFieldName(ORDER_STATUS);
+        if (status == null) {
+            g.writeNull();
+        } else {
+            g.writeString(STATUS_NAMES[status.ordinal()]);
+        }
+        g.writeFieldName(ADDRESS);
+        if (address == null) {
+            g.writeNull();
+        } else {
+            AddressSerializer.INSTANCE.serialize(address, g, provider);
+        }
+    }
+
+    /*
+    * LocalDateTime -> "yyyy-MM-ddTHH:mm:ss[.SSSSSSSSS]" (DateTimeFormatter.ISO_LOCAL_DATE_TIME 과 같은 결과)
+    * 초는 항상 쓰고, 소수점 이하는 0 이 아닌 자리까지만 쓴다.
+    * serializer 는 여러 스레드가 같이 쓰므로 버퍼는 스레드마다 둔다.
+    */
+    static final class LocalDateTimeWriter {
+
+        private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[29]);
+
+        void write(LocalDateTime value, JsonGenerator g) throws IOException {
+            int year = value.getYear();
+            if (year < 0 || year > 9999) {
+                g.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value)); // 부호, 5자리 연도는 드물어서 formatter 로
+                return;
+            }
+            char[] buf = buffers.get();
+            int pos = 0;
+            pos = digits(buf, pos, year, 4);
+            buf[pos++] = '-';
+            pos = digits(buf, pos, value.getMonthValue(), 2);
+            buf[pos++] = '-';
+            pos = digits(buf, pos, value.getDayOfMonth(), 2);
+            buf[pos++] = 'T';
+            pos = digits(buf, pos, value.getHour(), 2);
+            buf[pos++] = ':';
+            pos = digits(buf, pos, value.getMinute(), 2);
+            buf[pos++] = ':';
+            pos = digits(buf, pos, value.getSecond(), 2);
+            int nano = value.getNano();
+            if (nano > 0) {
+                buf[pos++] = '.';
+                int end = digits(buf, pos, nano, 9);
+                while (buf[end - 1] == '0') {
+                    end--;
+                }
+                pos = end;
+            }
+            g.writeString(buf, 0, pos);
+        }
+
+        private static int digits(char[] buf, int pos, int value, int width) {
+            for (int i = pos + width - 1; i >= pos; i--) {
+                buf[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+            return pos + width;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.kwanghoon.jpashop.domain;
 
+import com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator;
 import com.kwanghoon.jpashop.domain.item.Item;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -11,10 +15,12 @@ import java.util.List;
 import static javax.persistence.FetchType.*;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 @Getter @Setter
 public class Category {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = SnowflakeIdGenerator.NAME)
+    @GenericGenerator(name = SnowflakeIdGenerator.NAME, strategy = SnowflakeIdGenerator.STRATEGY)
     @Column(name = "category_id")
     private Long id;
 
@@ -32,6 +38,7 @@ public class Category {
     @JoinColumn(name = "parent_id")
     private Category parent;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category.child")
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
 
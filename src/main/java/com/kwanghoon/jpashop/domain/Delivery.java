@@ -1,8 +1,10 @@
 package com.kwanghoon.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -11,7 +13,8 @@ import static javax.persistence.FetchType.*;
 @Entity
 @Getter @Setter
 public class Delivery {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = SnowflakeIdGenerator.NAME)
+    @GenericGenerator(name = SnowflakeIdGenerator.NAME, strategy = SnowflakeIdGenerator.STRATEGY)
     @Column(name = "delivery_id")
     private Long id;
 
@@ -24,4 +27,9 @@ public class Delivery {
 
     @Enumerated(EnumType.STRING)
     private DeliveryStatus status;
+
+    /* 배송지, 상태가 바뀔 때마다 증가 -> 주문 조회 API ETag (OrderQueryRepository.findVersion, 페이지 ETag) */
+    @JsonIgnore
+    @Version
+    private Long version;
 }
@@ -1,8 +1,12 @@
 package com.kwanghoon.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -11,9 +15,15 @@ import java.util.List;
 
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Member.NAME_CONSTRAINT, columnNames = "name")) // 중복 가입 방지 + 이름 검색 (접두어 like)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")
 @Getter @Setter
 public class Member {
-    @Id @GeneratedValue
+
+    public static final String NAME_CONSTRAINT = "uk_member_name";
+
+    @Id @GeneratedValue(generator = SnowflakeIdGenerator.NAME)
+    @GenericGenerator(name = SnowflakeIdGenerator.NAME, strategy = SnowflakeIdGenerator.STRATEGY)
     @Column(name = "member_id")
     private Long id;
 
@@ -23,6 +33,11 @@ public class Member {
     @Embedded
     private Address address;
 
+    /* 이름, 주소가 바뀔 때마다 증가 -> 주문 조회 API ETag (OrderQueryRepository.findVersion, 페이지 ETag) */
+    @JsonIgnore
+    @Version
+    private Long version;
+
     @JsonIgnore // 엔티티를 직접 노술하는 양방향 연관관계는 둘중 하나는 붙여줘야함 무한루프 방지
     @OneToMany(mappedBy = "member") // Order Table 에 있는 member 필드에 의해서 맵핑이 된거임
     private List<Order> orders = new ArrayList<>(); /* Best practice : null 문제에서 안전
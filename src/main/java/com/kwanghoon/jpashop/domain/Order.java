@@ -1,24 +1,31 @@
 package com.kwanghoon.jpashop.domain;
 
+import com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static javax.persistence.CascadeType.*;
 import static javax.persistence.FetchType.*;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_order_date_id", columnList = "orderDate, order_id"),
+    @Index(name = "idx_orders_status", columnList = "status")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = SnowflakeIdGenerator.NAME)
+    @GenericGenerator(name = SnowflakeIdGenerator.NAME, strategy = SnowflakeIdGenerator.STRATEGY)
     @Column(name = "order_id")
     private Long id;
 
@@ -38,6 +45,10 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; // 주문상태
 
+    /* 생성 0, 변경(취소)될 때마다 증가 -> 조회 API ETag (OrderQueryRepository.findVersion, 페이지 ETag) */
+    @Version
+    private Long version;
+
 
     /* 연관관계 메서드 (양방향) */                   // public static void main(String[] args) {
     public void setMember(Member member) {     //   Member member = new Member();
@@ -73,12 +84,17 @@ public class Order {
 
     /* 비즈니스 로직 */
     public void cancel() {
+        cancel(OrderItem::cancel);
+    }
+
+    /* 재고 복구 방식을 지정해서 취소 (ex. StockService.release) */
+    public void cancel(Consumer<OrderItem> restoreStock) {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송완료돈 상품은 취소가 불가능합니다.");
         }
 
         this.setStatus(OrderStatus.CANCEL);
-        orderItems.forEach(OrderItem::cancel);
+        orderItems.forEach(restoreStock);
     }
 
     public int getTotalPrice() {
@@ -1,11 +1,13 @@
 package com.kwanghoon.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator;
 import com.kwanghoon.jpashop.domain.item.Item;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -15,7 +17,8 @@ import static javax.persistence.FetchType.*;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = SnowflakeIdGenerator.NAME)
+    @GenericGenerator(name = SnowflakeIdGenerator.NAME, strategy = SnowflakeIdGenerator.STRATEGY)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -32,6 +35,9 @@ public class OrderItem {
 
     private int count; // 주문 수량
 
+    @JsonIgnore
+    private String leaseEpoch; // 재고 원장에서 차감한 경우 원장 epoch (StockLease)
+
     /* 생성 메서드 */
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
@@ -43,6 +49,15 @@ public class OrderItem {
         return orderItem;
     }
 
+    /* 재고를 이미 차감한 경우 (ex. ItemRepository.decreaseStock) */
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
     /* 비즈니스 로직 */
     public void cancel() {
         getItem().addStock(count);
@@ -0,0 +1,68 @@
+package com.kwanghoon.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/*
+* 주문 목록 조회용 비정규화 테이블 (읽기 모델)
+* 목록 화면은 id, 회원 이름, 주문일, 상태, 배송지만 필요한데 매번 orders, member, delivery 를 조인한다.
+* 주문 한 건당 한 row 로 미리 펼쳐 두고, 조회는 이 테이블의 PK 인덱스만 읽는다.
+*
+* 같은 트랜잭션에서 갱신 (OrderSummaryRepository)
+* - 주문: OrderService.order, orderAll
+* - 취소: OrderService.cancelOrder, cancelAll
+* - 회원 이름 변경: MemberService.update
+* - 배송지 변경: OrderService.updateDeliveryAddress
+* 이 밖의 경로로 orders, member, delivery 를 바꾸면 (ex. SQL 직접 실행) 어긋난다. -> OrderSummaryRepository.rebuild
+*
+* version: row 가 바뀔 때마다 증가 -> 주문 목록 ETag (OrderQueryRepository.findVersionSummary)
+*/
+@Entity
+@Table(name = "order_summary", indexes = {
+    @Index(name = "idx_order_summary_member", columnList = "member_id"),
+    @Index(name = "idx_order_summary_version", columnList = "order_id, version") // 목록 버전 집계를 인덱스만 읽고 끝낸다.
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId; // 주문과 같은 식별자
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    private String memberName;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address; // 배송지
+
+    private int itemCount; // 주문 상품 종류 수
+
+    private int totalPrice;
+
+    private long version; // 생성 0, 갱신(벌크 UPDATE)할 때마다 +1
+
+    public static OrderSummary of(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.orderId = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.orderDate = order.getOrderDate();
+        summary.status = order.getStatus();
+        summary.address = order.getDelivery().getAddress();
+        summary.itemCount = order.getOrderItems().size();
+        summary.totalPrice = order.getTotalPrice();
+        return summary;
+    }
+}
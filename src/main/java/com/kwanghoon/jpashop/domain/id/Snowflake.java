@@ -0,0 +1,65 @@
+package com.kwanghoon.jpashop.domain.id;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+* 시간순 64bit 식별자 (Snowflake)
+* | 0 | timestamp 41bit (EPOCH 이후 ms, 약 69년) | node 10bit | sequence 12bit |
+*
+* - DB 접근 없이 노드마다 ms 당 4096 개까지 만든다.
+* - 시간순으로 커지므로 B-tree 인덱스 끝에만 insert 된다.
+* - timestamp 와 sequence 를 long 하나(state)에 담아 CAS 로 갱신 (락 없음)
+*   sequence 가 넘치거나 시계가 뒤로 가면 마지막 timestamp 를 이어서 쓰므로 값이 줄어들지 않는다.
+*/
+public class Snowflake {
+
+    public static final long EPOCH = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final ConcurrentHashMap<Integer, Snowflake> NODES = new ConcurrentHashMap<>();
+
+    private final long node;
+    private final LongSupplier clock;
+    private final AtomicLong state = new AtomicLong(); // (timestamp << SEQUENCE_BITS) | sequence
+
+    Snowflake(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id 는 0 ~ " + MAX_NODE_ID + " 사이여야 합니다. nodeId=" + nodeId);
+        }
+        this.node = nodeId;
+        this.clock = clock;
+    }
+
+    /* 같은 노드의 엔티티들이 하나의 시퀀스를 공유하도록 노드당 인스턴스 하나 */
+    public static Snowflake forNode(int nodeId) {
+        return NODES.computeIfAbsent(nodeId, id -> new Snowflake(id, System::currentTimeMillis));
+    }
+
+    public long nextId() {
+        while (true) {
+            long prev = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            long next = now > (prev >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : prev + 1; // sequence 가 넘치면 timestamp 로 올림
+            if (state.compareAndSet(prev, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                    | (node << SEQUENCE_BITS)
+                    | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
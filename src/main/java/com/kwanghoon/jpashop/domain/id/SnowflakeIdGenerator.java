@@ -0,0 +1,64 @@
+package com.kwanghoon.jpashop.domain.id;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/*
+* 엔티티 식별자 생성기 (@GenericGenerator 로 모든 엔티티에 지정)
+*
+* hibernate 설정 (spring.jpa.properties)
+* - jpashop.id.strategy: sequence (기본) | snowflake
+*   sequence 는 기존 @GeneratedValue 와 같은 hibernate_sequence 방식
+* - jpashop.id.node-id: 0 ~ 1023, 애플리케이션 노드마다 다르게 지정해야 한다. (snowflake 일 때만)
+*
+* snowflake 식별자는 (2020년 이후 ms) << 22 라서 이미 2^53 (JavaScript Number 의 정수 정밀도) 를 넘는다.
+* API 는 id 를 JSON 숫자로 내려주므로 브라우저에서 값이 바뀐다. 클라이언트가 id 를 문자열로 다룰 수 있을 때만 켠다.
+*
+* 전략을 바꿔도 되도록 SequenceStyleGenerator 를 상속해서 hibernate_sequence 는 계속 만든다.
+*/
+public class SnowflakeIdGenerator extends SequenceStyleGenerator {
+
+    public static final String NAME = "jpashop_id";
+    public static final String STRATEGY = "com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator";
+
+    public static final String STRATEGY_SETTING = "jpashop.id.strategy";
+    public static final String NODE_ID_SETTING = "jpashop.id.node-id";
+
+    private Snowflake snowflake; // null 이면 sequence
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+
+        ConfigurationService configurationService = serviceRegistry.getService(ConfigurationService.class);
+        String strategy = setting(configurationService, STRATEGY_SETTING, "sequence");
+        if ("sequence".equalsIgnoreCase(strategy)) {
+            return;
+        }
+        if (!"snowflake".equalsIgnoreCase(strategy)) {
+            throw new MappingException("지원하지 않는 식별자 전략입니다. " + STRATEGY_SETTING + "=" + strategy);
+        }
+        snowflake = Snowflake.forNode(Integer.parseInt(setting(configurationService, NODE_ID_SETTING, "0")));
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (snowflake == null) {
+            return super.generate(session, object);
+        }
+        return snowflake.nextId();
+    }
+
+    private static String setting(ConfigurationService configurationService, String name, String defaultValue) {
+        Object value = configurationService.getSettings().get(name);
+        return value == null ? defaultValue : value.toString().trim();
+    }
+}
@@ -2,8 +2,12 @@ package com.kwanghoon.jpashop.domain.item;
 
 import com.kwanghoon.jpashop.exception.NotEnoughStockException;
 import com.kwanghoon.jpashop.domain.Category;
+import com.kwanghoon.jpashop.domain.id.SnowflakeIdGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,9 +16,11 @@ import java.util.List;
 @Entity
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item") // 하위 타입(Book, Album, Movie)도 같은 region 사용
 @Getter @Setter
 public abstract class Item {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = SnowflakeIdGenerator.NAME)
+    @GenericGenerator(name = SnowflakeIdGenerator.NAME, strategy = SnowflakeIdGenerator.STRATEGY)
     @Column(name = "item_id")
     private Long id;
 
@@ -24,6 +30,10 @@ public abstract class Item {
 
     private int stockQuantity;
 
+    /* 동시 주문 시 재고 갱신 분실 방지 (낙관적 락) */
+    @Version
+    private Long version;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
@@ -0,0 +1,32 @@
+package com.kwanghoon.jpashop.domain.item;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/*
+* 재고 원장(InventoryLedger)이 DB 에서 떼어간 재고 기록
+* 원장 인스턴스(epoch) + 상품마다 한 row, lease/반환과 같은 트랜잭션에서 갱신한다.
+* 비정상 종료 후 재시작하면 이전 epoch 의 row 로 원장이 들고 있던 재고를 계산해서 DB 로 돌려준다.
+*
+* 원장이 들고 있던 재고 = leased - (같은 epoch 로 주문된 OrderItem.count 합계)
+*/
+@Entity
+@Table(name = "stock_lease", indexes = @Index(name = "idx_stock_lease_epoch", columnList = "epoch"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StockLease {
+
+    @Id
+    @Column(name = "lease_id")
+    private String id; // epoch:itemId
+
+    private String epoch;
+
+    @Column(name = "item_id")
+    private Long itemId;
+
+    private int leased; // 떼어간 재고 - 돌려준 재고
+}
@@ -0,0 +1,19 @@
+package com.kwanghoon.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class MonitorConfig implements WebMvcConfigurer {
+
+    private final SqlStatisticsInterceptor sqlStatisticsInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatisticsInterceptor)
+            .addPathPatterns("/api/**");
+    }
+}
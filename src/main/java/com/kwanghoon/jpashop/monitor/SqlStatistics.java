@@ -0,0 +1,83 @@
+package com.kwanghoon.jpashop.monitor;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/*
+* 요청 한 건 동안 실행된 SQL 통계
+* 요청을 처리하는 스레드의 ThreadLocal 에 보관한다. (SqlStatisticsInterceptor 에서 시작/종료)
+* 비동기 요청은 스레드가 바뀌므로 request attribute 로 넘겨서 resume 한다.
+*
+* statement shape: 같은 모양의 SQL 을 묶기 위해 공백과 IN 절 파라미터 개수를 정규화한 SQL
+* 같은 shape 가 여러 번 반복되면 N+1 을 의심할 수 있다.
+*/
+@Getter
+public class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_PARAMS = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private int statements;
+    private long jdbcNanos;
+    private long rows;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /* 비동기 요청에서 다른 스레드로 넘어온 통계를 이어서 기록 (SqlStatisticsInterceptor) */
+    public static void resume(SqlStatistics statistics) {
+        CURRENT.set(statistics);
+    }
+
+    /* 요청 처리 중이 아니면 null */
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    void recordStatement(String sql, long nanos) {
+        statements++;
+        jdbcNanos += nanos;
+        if (sql != null) {
+            shapes.merge(shapeOf(sql), 1, Integer::sum);
+        }
+    }
+
+    void recordTime(long nanos) {
+        jdbcNanos += nanos;
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    /* 가장 많이 반복된 statement shape 의 실행 횟수 */
+    public int maxRepeat() {
+        return shapes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public boolean isNPlusOne(int threshold) {
+        return maxRepeat() > threshold;
+    }
+
+    public long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_PARAMS.matcher(shape).replaceAll("(?)").toLowerCase();
+    }
+}
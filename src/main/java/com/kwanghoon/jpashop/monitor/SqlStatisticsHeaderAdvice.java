@@ -0,0 +1,43 @@
+package com.kwanghoon.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/*
+* 응답 헤더로 SQL 통계 노출
+* 응답 body 가 써지고 나면 헤더를 추가할 수 없으므로 body 를 쓰기 직전에 추가한다.
+* (body 직렬화 중에 실행되는 SQL 은 헤더에는 빠지고 메트릭에는 포함된다.)
+*/
+@ControllerAdvice
+@RequiredArgsConstructor
+public class SqlStatisticsHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SqlStatisticsInterceptor sqlStatisticsInterceptor;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            response.getHeaders().set("X-SQL-Count", String.valueOf(statistics.getStatements()));
+            response.getHeaders().set("X-SQL-Time-Ms", String.valueOf(statistics.getJdbcMillis()));
+            response.getHeaders().set("X-SQL-Rows", String.valueOf(statistics.getRows()));
+            if (statistics.isNPlusOne(sqlStatisticsInterceptor.getNPlusOneThreshold())) {
+                response.getHeaders().set("X-SQL-N-Plus-One", "true");
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,91 @@
+package com.kwanghoon.jpashop.monitor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 요청 단위 SQL 통계 수집
+* - preHandle: 통계 시작 (비동기 요청의 async dispatch 면 request attribute 에 넘겨둔 통계를 이어서 기록)
+* - afterConcurrentHandlingStarted: 비동기 처리가 시작되면 통계를 request attribute 로 옮기고 요청 스레드의 ThreadLocal 을 비운다.
+* - afterCompletion: 컨트롤러 매핑(uri 패턴) 별 Micrometer 메트릭 기록, N+1 의심 시 경고 로그
+*
+* 비동기 작업 스레드(StreamingResponseBody, CompletableFuture)에서 실행된 SQL 은 집계하지 않는다.
+*
+* 메트릭
+* - jpashop.sql.statements: 요청당 SQL 실행 수
+* - jpashop.sql.rows: 요청당 조회 row 수
+* - jpashop.sql.time: 요청당 JDBC 시간
+* - jpashop.sql.n_plus_one: 같은 shape 의 SQL 이 threshold 번 넘게 반복된 요청 수
+*/
+@Slf4j
+@Component
+public class SqlStatisticsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ASYNC_STATISTICS = SqlStatisticsInterceptor.class.getName() + ".statistics";
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    public SqlStatisticsInterceptor(MeterRegistry meterRegistry,
+                                    @Value("${jpashop.sql.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    public int getNPlusOneThreshold() {
+        return nPlusOneThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object suspended = request.getAttribute(ASYNC_STATISTICS);
+        if (suspended instanceof SqlStatistics) {
+            request.removeAttribute(ASYNC_STATISTICS);
+            SqlStatistics.resume((SqlStatistics) suspended);
+        } else {
+            SqlStatistics.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatistics statistics = SqlStatistics.current();
+        SqlStatistics.clear();
+        if (statistics != null) {
+            request.setAttribute(ASYNC_STATISTICS, statistics);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlStatistics statistics = SqlStatistics.current();
+        SqlStatistics.clear();
+        if (statistics == null) {
+            return;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern != null ? pattern.toString() : "UNKNOWN");
+
+        DistributionSummary.builder("jpashop.sql.statements").tags(tags).register(meterRegistry).record(statistics.getStatements());
+        DistributionSummary.builder("jpashop.sql.rows").tags(tags).register(meterRegistry).record(statistics.getRows());
+        Timer.builder("jpashop.sql.time").tags(tags).register(meterRegistry).record(statistics.getJdbcNanos(), TimeUnit.NANOSECONDS);
+
+        if (statistics.isNPlusOne(nPlusOneThreshold)) {
+            meterRegistry.counter("jpashop.sql.n_plus_one", tags).increment();
+            log.warn("N+1 의심 uri={} statements={} maxRepeat={}", pattern, statistics.getStatements(), statistics.maxRepeat());
+        }
+    }
+}
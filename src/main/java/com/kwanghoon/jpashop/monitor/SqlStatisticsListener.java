@@ -0,0 +1,35 @@
+package com.kwanghoon.jpashop.monitor;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/*
+* p6spy 이벤트로 현재 요청의 SQL 통계를 모은다.
+* p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록
+*/
+@Component
+public class SqlStatisticsListener extends JdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.recordStatement(statementInformation.getSql(), timeElapsedNanos);
+        }
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.recordTime(timeElapsedNanos);
+            if (hasNext) {
+                statistics.recordRow();
+            }
+        }
+    }
+}
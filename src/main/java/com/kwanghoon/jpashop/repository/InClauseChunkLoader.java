@@ -0,0 +1,120 @@
+package com.kwanghoon.jpashop.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/*
+* IN 절 분할 조회
+* where x.id in :ids 에 식별자를 한 번에 전부 넘기면
+* - SQL 이 너무 커지고
+* - 파라미터 개수마다 다른 SQL 이 되어서 쿼리 플랜 캐시를 재사용하지 못한다.
+*
+* 그래서
+* - chunkSize(2의 거듭제곱) 단위로 나누고
+* - 마지막 chunk 도 2의 거듭제곱 개수가 되도록 마지막 식별자를 반복해서 채운다. (IN 절의 중복 값은 결과에 영향 x)
+*   --> SQL 모양이 log2(chunkSize) 가지로 고정
+* - parallelism > 1 이면 chunk 를 별도의 EntityManager(커넥션)에서 병렬로 조회한다.
+*   커넥션 풀 크기보다 작게 설정해야 한다.
+*/
+@Component
+public class InClauseChunkLoader {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public InClauseChunkLoader(EntityManager em,
+                               EntityManagerFactory emf,
+                               @Value("${jpashop.query.in-clause.chunk-size:512}") int chunkSize,
+                               @Value("${jpashop.query.in-clause.parallelism:1}") int parallelism) {
+        this.em = em;
+        this.emf = emf;
+        this.chunkSize = padSize(Math.max(chunkSize, 1));
+        this.parallelism = Math.max(parallelism, 1);
+        this.executor = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism) : null;
+    }
+
+    public <T> List<T> load(List<Long> ids, BiFunction<EntityManager, List<Long>, List<T>> query) {
+        List<T> result = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        List<List<Long>> chunks = toPaddedChunks(ids);
+
+        /* chunk 가 하나거나 병렬 설정이 없으면 현재 영속성 컨텍스트에서 순서대로 조회 */
+        if (executor == null || chunks.size() == 1) {
+            chunks.forEach(chunk -> result.addAll(query.apply(em, chunk)));
+            return result;
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (List<Long> chunk : chunks) {
+            futures.add(executor.submit(() -> {
+                EntityManager chunkEm = emf.createEntityManager();
+                try {
+                    return query.apply(chunkEm, chunk);
+                } finally {
+                    chunkEm.close();
+                }
+            }));
+        }
+
+        try {
+            for (Future<List<T>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("IN 절 분할 조회가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return result;
+    }
+
+    private List<List<Long>> toPaddedChunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, ids.size());
+            List<Long> chunk = new ArrayList<>(ids.subList(from, to));
+
+            Long last = chunk.get(chunk.size() - 1);
+            int padded = padSize(chunk.size());
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /* n 이상의 가장 작은 2의 거듭제곱 */
+    static int padSize(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
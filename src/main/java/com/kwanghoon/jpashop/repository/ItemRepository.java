@@ -2,10 +2,22 @@ package com.kwanghoon.jpashop.repository;
 
 import com.kwanghoon.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Repository
 @RequiredArgsConstructor
@@ -25,6 +37,101 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    /*
+    * 조건부 원자적 재고 차감
+    * 재고가 충분할 때만 DB 에서 직접 차감하므로 락 없이도 갱신 분실이 없다.
+    * 커밋 후에는 해당 상품의 2차 캐시만 제거한다.
+    * (query space 를 Item 으로 지정하면 벌크 연산 정리로 item region 과 쿼리 캐시 전체가 비워지므로 지정하지 않는다.)
+    *
+    * 영속성 컨텍스트의 Item 은 갱신하지 않는다. (재고, 버전이 DB 보다 오래된 값)
+    * 이후 그 Item 을 변경하면 버전 충돌로 실패하므로 재고가 덮어써지지는 않는다.
+    *
+    * @return 재고가 부족하면 false
+    */
+    public boolean decreaseStock(Long itemId, int quantity) {
+        flushIfNotInserted(itemId);
+        int updated = em.createNativeQuery(
+            "update item set stock_quantity = stock_quantity - :quantity, version = version + 1 " +
+                "where item_id = :itemId and stock_quantity >= :quantity")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace("")
+            .setParameter("quantity", quantity)
+            .setParameter("itemId", itemId)
+            .executeUpdate();
+
+        if (updated == 1) {
+            evictAfterCommit(itemId);
+        }
+        return updated == 1;
+    }
+
+    /*
+    * 재고 복구 (대량 취소)
+    * 상품마다 수량을 합쳐서 UPDATE 한 번, 교착 상태를 피하기 위해 id 순서로 갱신한다.
+    */
+    public void increaseStock(Map<Long, Integer> quantities) {
+        new TreeMap<>(quantities).forEach((itemId, quantity) -> {
+            flushIfNotInserted(itemId);
+            em.createNativeQuery(
+                "update item set stock_quantity = stock_quantity + :quantity, version = version + 1 where item_id = :itemId")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+            evictAfterCommit(itemId);
+        });
+    }
+
+    /*
+    * 같은 트랜잭션에서 저장하고 아직 insert 하지 않은 상품이면 먼저 flush 한다.
+    * 그 외에는 flush 하지 않는다. (주문마다 flush 하면 insert 가 JDBC batch 로 묶이지 않는다.)
+    */
+    private void flushIfNotInserted(Long itemId) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Item.class);
+        PersistenceContext persistenceContext = session.getPersistenceContext();
+        Object item = persistenceContext.getEntity(session.generateEntityKey(itemId, persister));
+        if (item == null) {
+            return;
+        }
+        EntityEntry entry = persistenceContext.getEntry(item);
+        if (entry != null && !entry.isExistsInDatabase()) {
+            em.flush();
+        }
+    }
+
+    private void evictAfterCommit(Long itemId) {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.evict(Item.class, itemId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                cache.evict(Item.class, itemId);
+            }
+        });
+    }
+
+    /*
+    * 여러 상품을 한 번에 조회하면서 쓰기 락 (대량 주문)
+    * 교착 상태를 피하기 위해 항상 id 순서로 락을 잡는다.
+    */
+    public List<Item> findAllForUpdate(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids order by i.id", Item.class)
+            .setParameter("ids", ids)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+    }
+
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+            .setParameter("ids", ids)
+            .getResultList();
+    }
+
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
             .getResultList();
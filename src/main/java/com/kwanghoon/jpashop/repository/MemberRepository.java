@@ -2,10 +2,13 @@ package com.kwanghoon.jpashop.repository;
 
 import com.kwanghoon.jpashop.domain.Member;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,17 +16,39 @@ import java.util.List;
 public class MemberRepository {
 
     private final EntityManager em;
+    private final ReadMode readMode;
 
     public void save(Member member) {
         em.persist(member);
     }
 
+    public void flush() {
+        em.flush();
+    }
+
+    /* member.name 유니크 제약 위반인지 (Member.NAME_CONSTRAINT) */
+    public static boolean isDuplicateName(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                return constraintName != null && constraintName.toLowerCase().contains(Member.NAME_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
     public Member findOne(Long id) {
         return em.find(Member.class, id);
     }
 
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
+        return readMode.apply(em.createQuery("select m from Member m", Member.class))
+            .getResultList();
+    }
+
+    public List<Member> findAllById(Collection<Long> ids) {
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+            .setParameter("ids", ids)
             .getResultList();
     }
 
@@ -1,19 +1,40 @@
 package com.kwanghoon.jpashop.repository;
 
 import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.domain.OrderStatus;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
 
+    /* 검색 조건 조합별 JPQL (findAll, count) */
+    private static final int HAS_STATUS = 1;
+    private static final int HAS_NAME = 2;
+    private static final String[] SEARCH_QUERIES = new String[4];
+    private static final String[] COUNT_QUERIES = new String[4];
+
+    static {
+        for (int key = 0; key < 4; key++) {
+            String where = searchCondition(key);
+            SEARCH_QUERIES[key] = "select o from Order o join o.member m" + where + " order by o.id";
+            COUNT_QUERIES[key] = "select count(o) from Order o join o.member m" + where;
+        }
+    }
+
     private final EntityManager em;
+    private final ReadMode readMode;
 
     public void save(Order order) {
         em.persist(order);
@@ -23,65 +44,164 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
-    public List<Order> findAllByString(OrderSearch orderSearch) {
-        String jpql = "select o From Order o join o.member m"; boolean isFirstCondition = true;
-        //주문 상태 검색
+    /*
+    * 대량 취소 대상 조회, 주문마다 배송 상태를 확인해야 하므로 배송까지 한 번에 조회
+    * 같은 주문을 동시에 취소하지 않도록 쓰기 락 (id 순서)
+    */
+    public List<Order> findAllWithDeliveryForUpdate(Collection<Long> ids) {
+        return em.createQuery(
+            "select o from Order o" +
+                " join fetch o.delivery d" +
+                " where o.id in :ids" +
+                " order by o.id", Order.class)
+            .setParameter("ids", ids)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+    }
+
+    /* 주문들의 상품별 주문 수량 합계 (itemId -> count) */
+    public Map<Long, Integer> sumCountByItem(Collection<Long> orderIds) {
+        List<Object[]> rows = em.createQuery(
+            "select oi.item.id, sum(oi.count) from OrderItem oi" +
+                " where oi.order.id in :orderIds" +
+                " group by oi.item.id", Object[].class)
+            .setParameter("orderIds", orderIds)
+            .getResultList();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    /*
+    * 주문 상태를 한 번에 CANCEL 로 변경 (벌크 연산)
+    * 벌크 연산은 영속성 컨텍스트를 거치지 않으므로, 먼저 flush 하고 끝나면 영속성 컨텍스트를 비운다.
+    * -> 이후 조회는 DB 에서 변경된 상태를 다시 읽는다.
+    * 벌크 연산은 @Version 을 올리지 않으므로 직접 올린다. (ETag)
+    */
+    public int cancelAll(Collection<Long> ids) {
+        em.flush();
+        int updated = em.createQuery("update Order o set o.status = :status, o.version = o.version + 1 where o.id in :ids")
+            .setParameter("status", OrderStatus.CANCEL)
+            .setParameter("ids", ids)
+            .executeUpdate();
+        em.clear();
+        return updated;
+    }
+
+    /*
+    * 동적 검색
+    * 검색 조건 조합(주문 상태 유무 x 회원 이름 유무)마다 JPQL 을 미리 만들어 두고 재사용한다.
+    * -> 호출마다 문자열을 조립하지 않고, 같은 JPQL 이므로 하이버네이트 쿼리 플랜 캐시도 항상 재사용
+    *
+    * 회원 이름은 접두어 검색(like 'name%') 이라 member.name 인덱스를 탈 수 있다.
+    */
+    public List<Order> findAll(OrderSearch orderSearch) {
+        TypedQuery<Order> query = readMode.apply(em.createQuery(SEARCH_QUERIES[searchKey(orderSearch)], Order.class))
+            .setFirstResult(orderSearch.getOffset())
+            .setMaxResults(orderSearch.getLimit());
+        bindSearchParameters(query, orderSearch);
+        return query.getResultList();
+    }
+
+    public long count(OrderSearch orderSearch) {
+        TypedQuery<Long> query = em.createQuery(COUNT_QUERIES[searchKey(orderSearch)], Long.class);
+        bindSearchParameters(query, orderSearch);
+        return query.getSingleResult();
+    }
+
+    private static String searchCondition(int key) {
+        List<String> conditions = new ArrayList<>();
+        if ((key & HAS_STATUS) != 0) {
+            conditions.add("o.status = :status"); //주문 상태 검색
+        }
+        if ((key & HAS_NAME) != 0) {
+            conditions.add("m.name like :name escape '!'"); //회원 이름 검색 (접두어)
+        }
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    private static int searchKey(OrderSearch orderSearch) {
+        int key = 0;
         if (orderSearch.getOrderStatus() != null) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " o.status = :status"; }
-
-        //회원 이름 검색
+            key |= HAS_STATUS;
+        }
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " m.name like :name"; }
-
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class) .setMaxResults(1000); //최대 1000건
+            key |= HAS_NAME;
+        }
+        return key;
+    }
+
+    private static void bindSearchParameters(TypedQuery<?> query, OrderSearch orderSearch) {
         if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
+            query.setParameter("status", orderSearch.getOrderStatus());
         }
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName()); }
-        return query.getResultList();
+            query.setParameter("name", escapeLike(orderSearch.getMemberName()) + "%");
+        }
+    }
+
+    /* 사용자가 입력한 %, _ 는 문자 그대로 검색 */
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!")
+            .replace("%", "!%")
+            .replace("_", "!_");
     }
 
     public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
+        return readMode.apply(em.createQuery(
             "select o from Order o " +
                     "join fetch o.member m " +
                     "join fetch o.delivery d"
                     , Order.class
-        ).getResultList();
+        )).getResultList();
     }
     /* distinct: SQL 기능 + 같은 pk 는 제 */
     public List<Order> findAllWithItem() {
-        return em.createQuery(
+        return readMode.apply(em.createQuery(
             "select distinct o from Order o " +
                 "join fetch o.member m " +
                 "join fetch o.delivery d " +
                 "join fetch o.orderItems oi " +
                 "join fetch oi.item i"
             , Order.class
-            ).getResultList();
+            )).getResultList();
     }
 
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
-        return em.createQuery(
+        return readMode.apply(em.createQuery(
             "select o from Order o " +
                 "join fetch o.member m " +
                 "join fetch o.delivery d"
             , Order.class
-        ).setFirstResult(offset)
+        )).setFirstResult(offset)
             .setMaxResults(limit)
             .getResultList();
     }
+
+    /*
+    * 키셋(커서) 페이징
+    * offset 방식은 앞의 row 를 모두 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+    * (orderDate, order_id) 인덱스를 타고 커서 다음 위치부터 바로 읽으므로 페이지 깊이와 상관없이 일정한 비용
+    * cursor 가 null 이면 첫 페이지
+    */
+    public List<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        String jpql = "select o from Order o " +
+            "join fetch o.member m " +
+            "join fetch o.delivery d";
+        if (cursor != null) {
+            jpql += " where o.orderDate > :orderDate" +
+                " or (o.orderDate = :orderDate and o.id > :orderId)";
+        }
+        jpql += " order by o.orderDate, o.id";
+
+        TypedQuery<Order> query = readMode.apply(em.createQuery(jpql, Order.class))
+            .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.getResultList();
+    }
 }
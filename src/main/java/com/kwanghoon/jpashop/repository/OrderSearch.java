@@ -5,6 +5,8 @@ import com.kwanghoon.jpashop.domain.OrderStatus;
 public class OrderSearch {
     private String memberName; //회원 이름
     private OrderStatus orderStatus;//주문 상태[ORDER, CANCEL]
+    private int offset = 0;
+    private int limit = 1000; //최대 1000건
 
 //    public OrderSearch() {
 //    }
@@ -24,4 +26,26 @@ public class OrderSearch {
     public void setOrderStatus(OrderStatus orderStatus) {
         this.orderStatus = orderStatus;
     }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset 은 0 이상이어야 합니다. offset=" + offset);
+        }
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit 은 0 이상이어야 합니다. limit=" + limit);
+        }
+        this.limit = limit;
+    }
 }
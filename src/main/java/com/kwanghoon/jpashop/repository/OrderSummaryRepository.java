@@ -0,0 +1,100 @@
+package com.kwanghoon.jpashop.repository;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.domain.OrderSummary;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+/*
+* 주문 목록 읽기 모델 (OrderSummary)
+* 쓰기 메서드는 주문, 회원을 바꾸는 서비스 메서드의 트랜잭션 안에서 호출해야 한다.
+* 상태, 회원 이름, 배송지 변경은 엔티티를 읽지 않고 UPDATE 한 번으로 처리한다. (벌크 연산이라 영속성 컨텍스트의 OrderSummary 는 갱신되지 않는다.)
+* 변경할 때마다 version 을 올린다. (주문 목록 ETag)
+*/
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    /* 주문 저장 직후 (식별자가 있어야 한다.) */
+    public void save(Order order) {
+        em.persist(OrderSummary.of(order));
+    }
+
+    public int updateStatus(Collection<Long> orderIds, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.status = :status, s.version = s.version + 1 where s.orderId in :orderIds")
+            .setParameter("status", status)
+            .setParameter("orderIds", orderIds)
+            .executeUpdate();
+    }
+
+    /* member_id 인덱스 */
+    public int updateMemberName(Long memberId, String memberName) {
+        return em.createQuery("update OrderSummary s set s.memberName = :memberName, s.version = s.version + 1 where s.memberId = :memberId")
+            .setParameter("memberName", memberName)
+            .setParameter("memberId", memberId)
+            .executeUpdate();
+    }
+
+    public int updateAddress(Long orderId, Address address) {
+        return em.createQuery(
+            "update OrderSummary s set s.address.city = :city, s.address.street = :street, s.address.zipcode = :zipcode, " +
+                "s.version = s.version + 1 where s.orderId = :orderId")
+            .setParameter("city", address.getCity())
+            .setParameter("street", address.getStreet())
+            .setParameter("zipcode", address.getZipcode())
+            .setParameter("orderId", orderId)
+            .executeUpdate();
+    }
+
+    /* V4 와 같은 결과를 조인 없이 (PK 순서) */
+    public List<OrderSimpleQueryDto> findOrderDtos() {
+        return em.createQuery(
+            "select new com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto(" +
+                "s.orderId, s.memberName, s.orderDate, s.status, s.address) " +
+                "from OrderSummary s " +
+                "order by s.orderId"
+            , OrderSimpleQueryDto.class).getResultList();
+    }
+
+    /*
+    * 전체 다시 만들기 (대량 적재 후, 어긋났을 때)
+    * 컬럼 이름은 엔티티 매핑(SpringPhysicalNamingStrategy)을 따른다.
+    * version 은 기존 최댓값 + 1 로 채운다. (버전 합계가 이전 값으로 돌아가서 오래된 ETag 가 맞아 떨어지지 않도록)
+    */
+    @Transactional
+    public int rebuild() {
+        em.flush();
+        long version = ((Number) em.createNativeQuery("select coalesce(max(version), -1) + 1 from order_summary")
+            .getSingleResult()).longValue();
+        em.createNativeQuery("delete from order_summary")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(OrderSummary.class) // 2차 캐시 전체 무효화 방지
+            .executeUpdate();
+        int rows = em.createNativeQuery(
+            "insert into order_summary (order_id, member_id, member_name, order_date, status, city, street, zipcode, item_count, total_price, version) " +
+                "select o.order_id, m.member_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode, " +
+                "count(oi.order_item_id), coalesce(sum(oi.order_price * oi.count), 0), :version " +
+                "from orders o " +
+                "join member m on m.member_id = o.member_id " +
+                "join delivery d on d.delivery_id = o.delivery_id " +
+                "left join order_item oi on oi.order_id = o.order_id " +
+                "group by o.order_id, m.member_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(OrderSummary.class)
+            .setParameter("version", version)
+            .executeUpdate();
+        em.clear();
+        return rows;
+    }
+}
@@ -0,0 +1,36 @@
+package com.kwanghoon.jpashop.repository;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Query;
+
+/*
+* 가벼운 조회 모드 (jpashop.query.lightweight-read)
+* 조회 API 는 대부분 트랜잭션 없이(OSIV) 엔티티를 읽어서 DTO 로 바꾸기만 한다.
+* 그래도 영속성 컨텍스트는 엔티티마다 변경 감지용 스냅샷(컬럼 값 배열)을 하나씩 더 들고 있다.
+*
+* - org.hibernate.readOnly: 조회한 엔티티를 읽기 전용으로 관리 (스냅샷 x, 변경 감지 x)
+*
+* flush 모드는 바꾸지 않는다. 같은 트랜잭션에서 먼저 저장한 엔티티도 조회 결과에 나와야 하기 때문 (auto flush)
+*
+* 읽기 전용 엔티티는 값을 바꿔도 DB 에 반영되지 않으므로, 조회 전용 메서드에만 사용한다.
+* (@Transactional(readOnly = true) 안에서는 스프링이 세션 전체에 같은 설정을 한다.)
+*/
+@Component
+public class ReadMode {
+
+    private final boolean lightweight;
+
+    public ReadMode(@Value("${jpashop.query.lightweight-read:true}") boolean lightweight) {
+        this.lightweight = lightweight;
+    }
+
+    public <Q extends Query> Q apply(Q query) {
+        if (lightweight) {
+            query.setHint(QueryHints.HINT_READONLY, true);
+        }
+        return query;
+    }
+}
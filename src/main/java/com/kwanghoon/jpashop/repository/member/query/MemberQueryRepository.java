@@ -0,0 +1,75 @@
+package com.kwanghoon.jpashop.repository.member.query;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+* 회원 목록 DTO 조회
+* 엔티티(Member + Address)를 영속성 컨텍스트에 올리지 않고 필요한 컬럼만 DTO 로 조회한다.
+* 메모리 사용량은 회원 수가 아니라 페이지 크기에 비례
+*/
+@Repository
+@RequiredArgsConstructor
+public class MemberQueryRepository {
+
+    private final EntityManager em;
+
+    /* 스트리밍 조회 시 JDBC 드라이버가 한 번에 가져오는 row 수 */
+    @Value("${jpashop.member.list.fetch-size:500}")
+    private int streamFetchSize;
+
+    /* offset 페이징 */
+    public List<MemberQueryDto> findPage(int offset, int limit) {
+        return em.createQuery(
+            "select new com.kwanghoon.jpashop.repository.member.query.MemberQueryDto(m.id, m.name)" +
+                " from Member m" +
+                " order by m.id", MemberQueryDto.class)
+            .setFirstResult(offset)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /*
+    * keyset 페이징
+    * 이전 페이지 마지막 id 다음부터 조회하므로 offset 만큼 읽고 버리는 비용이 없다.
+    */
+    public List<MemberQueryDto> findPageAfter(Long afterId, int limit) {
+        return em.createQuery(
+            "select new com.kwanghoon.jpashop.repository.member.query.MemberQueryDto(m.id, m.name)" +
+                " from Member m" +
+                " where m.id > :afterId" +
+                " order by m.id", MemberQueryDto.class)
+            .setParameter("afterId", afterId)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /* 전체 export, forward-only 커서로 한 row 씩 consumer 에 넘긴다. */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<MemberQueryDto> consumer) {
+        ScrollableResults scroll = em.unwrap(Session.class).createQuery(
+            "select new com.kwanghoon.jpashop.repository.member.query.MemberQueryDto(m.id, m.name)" +
+                " from Member m" +
+                " order by m.id", MemberQueryDto.class)
+            .setFetchSize(streamFetchSize)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
+
+        try {
+            while (scroll.next()) {
+                consumer.accept((MemberQueryDto) scroll.get(0));
+            }
+        } finally {
+            scroll.close();
+        }
+    }
+}
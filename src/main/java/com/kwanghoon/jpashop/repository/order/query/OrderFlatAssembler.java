@@ -0,0 +1,53 @@
+package com.kwanghoon.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+* 플랫 데이터(OrderFlatDto) -> OrderQueryDto 변환기
+* order id 로 정렬된 row 를 한 번만 훑으면서 연속된 같은 주문의 row 를 하나의 OrderQueryDto 로 묶는다.
+*
+* groupingBy 방식과 비교
+* - row 마다 임시 key DTO 를 만들지 않고, HashMap 도 사용하지 않는다. (row 당 OrderItemQueryDto 1개만 생성)
+* - 조회한 순서가 그대로 유지된다.
+* - 주문 경계를 알 수 있으므로 스트리밍, 주문 단위 페이징에 재사용 가능
+*
+* 주의: 입력 row 가 order id 로 정렬되어 있어야 한다.
+* 주문 상품이 없는 주문(left join 으로 상품 컬럼이 null 인 row)은 빈 목록으로 묶는다.
+*/
+public class OrderFlatAssembler {
+
+    private final Consumer<OrderQueryDto> consumer;
+    private OrderQueryDto current;
+
+    public OrderFlatAssembler(Consumer<OrderQueryDto> consumer) {
+        this.consumer = consumer;
+    }
+
+    public static List<OrderQueryDto> assemble(List<OrderFlatDto> flats) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderFlatAssembler assembler = new OrderFlatAssembler(result::add);
+        flats.forEach(assembler::add);
+        assembler.finish();
+        return result;
+    }
+
+    public void add(OrderFlatDto flat) {
+        if (current == null || !current.getOrderId().equals(flat.getOrderId())) {
+            finish();
+            current = new OrderQueryDto(flat.getOrderId(), flat.getName(), flat.getOrderDate(), flat.getOrderStatus(), flat.getAddress(), new ArrayList<>());
+        }
+        if (flat.getCount() != null) {
+            current.getOrderItem().add(new OrderItemQueryDto(flat.getOrderId(), flat.getItemName(), flat.getOrderPrice(), flat.getCount()));
+        }
+    }
+
+    /* 마지막으로 묶고 있던 주문을 내보낸다. */
+    public void finish() {
+        if (current != null) {
+            consumer.accept(current);
+            current = null;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.kwanghoon.jpashop.repository.order.query;
 
+import com.kwanghoon.jpashop.repository.InClauseChunkLoader;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -13,6 +22,11 @@ import java.util.stream.Collectors;
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final InClauseChunkLoader inClauseChunkLoader;
+
+    /* 스트리밍 조회 시 JDBC 드라이버가 한 번에 가져오는 row 수 */
+    @Value("${jpashop.order.stream.fetch-size:500}")
+    private int streamFetchSize;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> orders = findOrders();
@@ -29,7 +43,8 @@ public class OrderQueryRepository {
             "select new com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count) " +
                 "from OrderItem oi " +
                 "join oi.item i " +
-                "where oi.order.id = : orderId"
+                "where oi.order.id = : orderId " +
+                "order by oi.id"
             , OrderItemQueryDto.class
             ).setParameter("orderId", orderId)
             .getResultList();
@@ -50,20 +65,22 @@ public class OrderQueryRepository {
         List<Long> orderIds = toOrderIds(result);
         Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(orderIds);
 
-        result.forEach(o -> o.setOrderItem(orderItemMap.get(o.getOrderId())));
+        result.forEach(o -> o.setOrderItem(orderItemMap.getOrDefault(o.getOrderId(), new ArrayList<>()))); // 주문 상품이 없는 주문은 빈 목록 (V4, V6 와 같게)
 
         return result;
     }
 
+    /* 식별자가 많으면 chunk 단위로 나눠서 조회 (InClauseChunkLoader 참고) */
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
+        List<OrderItemQueryDto> orderItems = inClauseChunkLoader.load(orderIds, (chunkEm, ids) -> chunkEm.createQuery(
             "select new com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count) " +
                 "from OrderItem oi " +
                 "join oi.item i " +
-                "where oi.order.id in :orderIds"
+                "where oi.order.id in :orderIds " +
+                "order by oi.id"
             , OrderItemQueryDto.class
-        ).setParameter("orderIds", orderIds)
-            .getResultList();
+        ).setParameter("orderIds", ids)
+            .getResultList());
 
 
         Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems
@@ -80,14 +97,97 @@ public class OrderQueryRepository {
         return orderIds;
     }
 
+    /* 주문 한 건 (V5 단건) */
+    public Optional<OrderQueryDto> findOrderQueryDto(Long orderId) {
+        List<OrderQueryDto> orders = em.createQuery(
+            "select new com.kwanghoon.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address) " +
+                "from Order o " +
+                "join o.member m " +
+                "join o.delivery d " +
+                "where o.id = :orderId"
+            , OrderQueryDto.class
+        ).setParameter("orderId", orderId)
+            .getResultList();
+        orders.forEach(o -> o.setOrderItem(findOrderItems(o.getOrderId())));
+        return orders.stream().findFirst();
+    }
+
+    /* 주문 한 건의 버전 (ETag), 주문/회원/배송 version 을 "-" 로 이어 붙인 값, 없으면 empty */
+    public Optional<String> findVersion(Long orderId) {
+        return em.createQuery(
+            "select o.version, m.version, d.version from Order o join o.member m join o.delivery d where o.id = :orderId", Object[].class)
+            .setParameter("orderId", orderId)
+            .getResultList()
+            .stream()
+            .findFirst()
+            .map(row -> row[0] + "-" + row[1] + "-" + row[2]);
+    }
+
+    /*
+    * 전체 주문 목록의 버전 (ETag)
+    * orders, member, delivery 를 조인하지 않고 주문 요약(order_summary) 한 테이블만 집계한다.
+    * (order_id, version) 인덱스만 읽으므로 목록 조회(V4)보다 훨씬 싸다.
+    * 주문은 삭제하지 않고, 생성하면 count 가, 주문 상태/회원 이름/배송지가 바뀌면 version 합계가 늘어난다. (OrderSummaryRepository)
+    * 상품, 주문 상품은 읽지 않는다. -> 상품 이름 변경은 반영되지 않는다.
+    */
+    public OrderVersionSummary findVersionSummary() {
+        Object[] row = (Object[]) em.createQuery(
+            "select count(s), coalesce(sum(s.version), 0), coalesce(max(s.orderId), 0) from OrderSummary s")
+            .getSingleResult();
+        return new OrderVersionSummary(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+    }
+    /* 조회 전략 선택용 건수 (OrderQueryService) */
+    public long countOrders() {
+        return em.createQuery("select count(o) from Order o", Long.class)
+            .getSingleResult();
+    }
+
+    public long countOrderItems() {
+        return em.createQuery("select count(oi) from OrderItem oi", Long.class)
+            .getSingleResult();
+    }
+
     public List<OrderFlatDto> findAllByDto_flat() {
         return em.createQuery(
             "select new com.kwanghoon.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
                 "from Order o " +
                 "join o.member m " +
                 "join o.delivery d " +
-                "join o.orderItems oi " +
-                "join oi.item i"
+                "left join o.orderItems oi " +
+                "left join oi.item i " +
+                "order by o.id, oi.id"
             , OrderFlatDto.class).getResultList();
     }
+
+    /*
+    * V6 스트리밍 버전
+    * 결과를 List 로 모으지 않고 forward-only 커서로 한 row 씩 읽어서 주문 단위로 묶어 consumer 에 넘긴다.
+    * order by o.id 로 같은 주문의 row 가 연속으로 나오므로 현재 주문 하나만 메모리에 유지하면 된다.
+    * DTO 조회라 영속성 컨텍스트에도 쌓이지 않는다. -> 전체 건수와 상관없이 메모리 사용량 일정
+    */
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+        ScrollableResults scroll = em.unwrap(Session.class).createQuery(
+            "select new com.kwanghoon.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                "from Order o " +
+                "join o.member m " +
+                "join o.delivery d " +
+                "left join o.orderItems oi " +
+                "left join oi.item i " +
+                "order by o.id, oi.id"
+            , OrderFlatDto.class)
+            .setFetchSize(streamFetchSize)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
+
+        try {
+            OrderFlatAssembler assembler = new OrderFlatAssembler(consumer);
+            while (scroll.next()) {
+                assembler.add((OrderFlatDto) scroll.get(0));
+            }
+            assembler.finish();
+        } finally {
+            scroll.close();
+        }
+    }
 }
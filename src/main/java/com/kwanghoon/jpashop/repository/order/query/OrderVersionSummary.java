@@ -0,0 +1,22 @@
+package com.kwanghoon.jpashop.repository.order.query;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/* 주문 목록 버전 (OrderQueryRepository.findVersionSummary) */
+@Getter
+@RequiredArgsConstructor
+public class OrderVersionSummary {
+
+    private final long count;
+    private final long versionSum;
+    private final long maxId;
+
+    /* ETag 값, 건수가 그대로 드러나지 않게 해시한다. */
+    public String fingerprint() {
+        return DigestUtils.md5DigestAsHex((count + ":" + versionSum + ":" + maxId).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,91 @@
+package com.kwanghoon.jpashop.repository.order.stream;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatAssembler;
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/*
+* 스트리밍 조회 전용 (JDBC)
+* OrderSimpleQueryRepository(V4), OrderQueryRepository(V5) 와 같은 DTO 를 만들지만
+* 영속성 컨텍스트를 거치지 않고 JPA 엔티티가 만든 테이블을 JDBC 커서로 직접 읽는다. (쓰기는 그대로 JPA)
+*
+* consumer 가 블로킹되면 (응답 소켓이 가득 차면) 다음 row 를 읽지 않으므로
+* 메모리에는 fetchSize 만큼의 row 만 남는다. -> 느린 클라이언트가 DB 커서 읽기 속도를 정한다.
+*
+* 컬럼 이름은 엔티티 매핑(SpringPhysicalNamingStrategy)을 따른다. 엔티티를 바꾸면 같이 바꿔야 한다.
+*/
+@Repository
+public class OrderStreamQueryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderStreamQueryRepository(DataSource dataSource,
+                                      @Value("${jpashop.order.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /* V4 와 같은 모양 */
+    @Transactional(readOnly = true)
+    public void streamOrderDtos(Consumer<OrderSimpleQueryDto> consumer) {
+        jdbcTemplate.query(
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode " +
+                "from orders o " +
+                "join member m on m.member_id = o.member_id " +
+                "join delivery d on d.delivery_id = o.delivery_id " +
+                "order by o.order_id",
+            rs -> {
+                consumer.accept(new OrderSimpleQueryDto(
+                    rs.getLong(1), rs.getString(2), toLocalDateTime(rs.getTimestamp(3)), toStatus(rs.getString(4)), toAddress(rs)));
+            });
+    }
+
+    /*
+    * V5 와 같은 모양, order_id 로 정렬된 플랫 row 를 주문 단위로 묶는다. (OrderFlatAssembler)
+    * 주문 상품이 없는 주문도 내려주도록 left join, 이때 상품 컬럼은 null 이다.
+    */
+    @Transactional(readOnly = true)
+    public void streamOrderQueryDtos(Consumer<OrderQueryDto> consumer) {
+        OrderFlatAssembler assembler = new OrderFlatAssembler(consumer);
+        jdbcTemplate.query(
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode, i.name, oi.order_price, oi.count " +
+                "from orders o " +
+                "join member m on m.member_id = o.member_id " +
+                "join delivery d on d.delivery_id = o.delivery_id " +
+                "left join order_item oi on oi.order_id = o.order_id " +
+                "left join item i on i.item_id = oi.item_id " +
+                "order by o.order_id, oi.order_item_id",
+            rs -> {
+                assembler.add(new OrderFlatDto(
+                    rs.getLong(1), rs.getString(2), toLocalDateTime(rs.getTimestamp(3)), toStatus(rs.getString(4)), toAddress(rs),
+                    rs.getString(8), rs.getObject(9, Integer.class), rs.getObject(10, Integer.class)));
+            });
+        assembler.finish();
+    }
+
+    private static Address toAddress(ResultSet rs) throws SQLException {
+        return new Address(rs.getString(5), rs.getString(6), rs.getString(7));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private static OrderStatus toStatus(String status) {
+        return status == null ? null : OrderStatus.valueOf(status);
+    }
+}
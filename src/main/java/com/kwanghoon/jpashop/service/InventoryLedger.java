@@ -0,0 +1,291 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.domain.item.Item;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+* 메모리 재고 원장 (jpashop.stock.mode=ledger 일 때만 빈으로 등록, 다른 모드는 커넥션 풀, 복구, flush 모두 없음)
+* 인기 상품도 주문마다 item row 를 갱신하지 않도록, DB 재고 일부를 메모리로 미리 떼어와서(lease) 나눠준다.
+*
+* - lease: 원장 재고가 모자라면 DB 에서 leaseChunk 만큼 차감해서 가져온다. (별도 트랜잭션, 상품 row 락은 이 순간만)
+* - reserve/release: CPU 코어 수만큼 나눈 카운터(stripe)에서 CAS 로 차감/반환, DB 왕복 없음
+* - flush: 주기적으로 또는 반환된 재고가 쌓이면 leaseChunk 를 넘는 만큼 DB 로 돌려준다.
+*
+* lease/flush 는 주문 트랜잭션과 별도의 작은 커넥션 풀을 쓴다.
+* 주문 트랜잭션이 커넥션을 모두 잡은 채 lease 를 기다리면 풀이 고갈되어 멈추기 때문
+*
+* DB 재고는 항상 "실제 남은 재고 - 원장이 들고 있는 재고" 이므로 DB 만 보고 팔아도 초과 판매가 없다.
+*
+* 재시작 복구 (StockLease)
+* - 원장 인스턴스마다 epoch(owner:UUID) 를 만들고, lease/반환할 때 같은 트랜잭션에서 stock_lease 에 순 lease 수량을 기록한다.
+* - 원장에서 차감한 주문상품에는 epoch 를 남긴다. (OrderItem.leaseEpoch, 주문 트랜잭션과 함께 커밋)
+* - 시작 시 같은 owner 의 이전 epoch 마다 "leased - 주문된 수량" 을 DB 재고로 돌려주고 row 를 지운다.
+*   비정상 종료로 flush 하지 못한 재고, 커밋되지 않은 주문이 차감했던 재고 모두 여기에 포함된다.
+* 노드마다 jpashop.stock.ledger.owner 를 다르게 둬야 한다. (살아 있는 다른 노드의 원장을 복구하지 않도록)
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.stock.mode", havingValue = "ledger")
+public class InventoryLedger {
+
+    private static final int PADDING = 16; // stripe 사이 false sharing 방지 (int 16개 = 64 byte)
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory emf;
+    private final int stripes;
+    private final int leaseChunk;
+    private final String owner;
+    private final String epoch;
+    private final ConcurrentHashMap<Long, ItemLedger> ledgers = new ConcurrentHashMap<>();
+
+    public InventoryLedger(DataSourceProperties dataSourceProperties,
+                           EntityManagerFactory emf,
+                           @Value("${jpashop.stock.ledger.pool-size:2}") int poolSize,
+                           @Value("${jpashop.stock.ledger.stripes:0}") int stripes,
+                           @Value("${jpashop.stock.ledger.lease-chunk:100}") int leaseChunk,
+                           @Value("${jpashop.stock.ledger.owner:default}") String owner) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("inventory-ledger");
+        this.dataSource.setMaximumPoolSize(poolSize);
+        this.dataSource.setMinimumIdle(0);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.emf = emf;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.leaseChunk = Math.max(leaseChunk, 1);
+        this.owner = owner;
+        this.epoch = owner + ":" + UUID.randomUUID();
+    }
+
+    /* 이 원장 인스턴스의 식별자, 원장에서 차감한 주문상품에 남긴다. (OrderItem.leaseEpoch) */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /*
+    * 이전 epoch 가 들고 있던 재고를 DB 로 돌려준다.
+    * 빈 초기화 시점(요청 처리, 주기적 flush 이전)에 실행된다.
+    * stock_lease 가 비어 있으면 (정상 종료 후 재시작, ledger 모드를 쓴 적 없음) 조회 한 번으로 끝난다.
+    */
+    @PostConstruct
+    public void recover() {
+        List<Map<String, Object>> leases = jdbcTemplate.queryForList(
+            "select lease_id, epoch, item_id, leased from stock_lease where epoch like ? and epoch <> ?", owner + ":%", epoch);
+        for (Map<String, Object> lease : leases) {
+            String leaseId = (String) lease.get("lease_id");
+            String leaseEpoch = (String) lease.get("epoch");
+            Long itemId = ((Number) lease.get("item_id")).longValue();
+            int leased = ((Number) lease.get("leased")).intValue();
+            Integer held = transactionTemplate.execute(status -> {
+                int ordered = jdbcTemplate.queryForObject(
+                    "select coalesce(sum(count), 0) from order_item where lease_epoch = ? and item_id = ?",
+                    Integer.class, leaseEpoch, itemId);
+                int remaining = leased - ordered;
+                if (remaining > 0) {
+                    jdbcTemplate.update(
+                        "update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?", remaining, itemId);
+                }
+                jdbcTemplate.update("delete from stock_lease where lease_id = ?", leaseId);
+                return remaining;
+            });
+            if (held != null && held > 0) {
+                emf.getCache().evict(Item.class, itemId);
+                log.warn("재고 원장 복구 epoch={} itemId={} stock={}", leaseEpoch, itemId, held);
+            }
+        }
+    }
+
+    /* @return 재고가 부족하면 false */
+    public boolean reserve(Long itemId, int count) {
+        ItemLedger ledger = ledgers.computeIfAbsent(itemId, id -> new ItemLedger(stripes));
+        while (true) {
+            if (ledger.tryTake(count)) {
+                return true;
+            }
+            synchronized (ledger) {
+                if (ledger.tryTake(count)) {
+                    return true;
+                }
+                int leased = lease(itemId, Math.max(leaseChunk, count));
+                if (leased == 0) {
+                    return false;
+                }
+                ledger.add(leased);
+            }
+        }
+    }
+
+    public void release(Long itemId, int count) {
+        ItemLedger ledger = ledgers.computeIfAbsent(itemId, id -> new ItemLedger(stripes));
+        ledger.add(count);
+        if (ledger.total() > leaseChunk * 2) {
+            returnSurplus(itemId, ledger, leaseChunk);
+        }
+    }
+
+    /* 원장이 들고 있는 재고 (테스트, 모니터링용) */
+    public int leased(Long itemId) {
+        ItemLedger ledger = ledgers.get(itemId);
+        return ledger == null ? 0 : ledger.total();
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.stock.ledger.flush-interval-millis:1000}")
+    public void flush() {
+        ledgers.forEach((itemId, ledger) -> returnSurplus(itemId, ledger, leaseChunk));
+    }
+
+    /* 원장이 들고 있는 재고를 모두 DB 로 돌려준다. */
+    public void flushAll() {
+        ledgers.forEach((itemId, ledger) -> returnSurplus(itemId, ledger, 0));
+    }
+
+    @PreDestroy
+    public void close() {
+        flushAll();
+        dataSource.close();
+    }
+
+    private int lease(Long itemId, int want) {
+        Integer leased = transactionTemplate.execute(status -> {
+            int stock;
+            try {
+                stock = jdbcTemplate.queryForObject(
+                    "select stock_quantity from item where item_id = ? for update", Integer.class, itemId);
+            } catch (EmptyResultDataAccessException e) {
+                return 0;
+            }
+            int take = Math.min(stock, want);
+            if (take > 0) {
+                jdbcTemplate.update(
+                    "update item set stock_quantity = stock_quantity - ?, version = version + 1 where item_id = ?", take, itemId);
+                recordLease(itemId, take);
+            }
+            return take;
+        });
+        if (leased != null && leased > 0) {
+            emf.getCache().evict(Item.class, itemId);
+        }
+        return leased == null ? 0 : leased;
+    }
+
+    private void returnSurplus(Long itemId, ItemLedger ledger, int keep) {
+        synchronized (ledger) {
+            int surplus = ledger.total() - keep;
+            if (surplus <= 0 || !ledger.tryTake(surplus)) {
+                return;
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    jdbcTemplate.update(
+                        "update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?", surplus, itemId);
+                    recordLease(itemId, -surplus);
+                    return null;
+                });
+                emf.getCache().evict(Item.class, itemId);
+            } catch (RuntimeException e) {
+                ledger.add(surplus); // 다음 flush 때 다시 시도
+                log.warn("재고 원장 flush 실패 itemId={} surplus={}", itemId, surplus, e);
+            }
+        }
+    }
+
+    /* lease/반환과 같은 트랜잭션에서 호출, 상품마다 ledger 로 동기화되어 있어서 insert 가 겹치지 않는다. */
+    private void recordLease(Long itemId, int delta) {
+        String leaseId = epoch + ":" + itemId;
+        int updated = jdbcTemplate.update("update stock_lease set leased = leased + ? where lease_id = ?", delta, leaseId);
+        if (updated == 0) {
+            jdbcTemplate.update(
+                "insert into stock_lease (lease_id, epoch, item_id, leased) values (?, ?, ?, ?)", leaseId, epoch, itemId, delta);
+        }
+    }
+
+    /* 상품 하나의 원장 재고, stripe 별로 나눠서 보관 */
+    static class ItemLedger {
+
+        private final int size;
+        private final AtomicIntegerArray counters;
+
+        ItemLedger(int size) {
+            this.size = size;
+            this.counters = new AtomicIntegerArray(size * PADDING);
+        }
+
+        /* 현재 스레드의 stripe 부터 차례로 차감, 모자라면 되돌리고 false */
+        boolean tryTake(int count) {
+            int start = ThreadLocalRandom.current().nextInt(size);
+            int remaining = count;
+            int[] taken = null;
+            for (int i = 0; i < size && remaining > 0; i++) {
+                int idx = ((start + i) % size) * PADDING;
+                while (true) {
+                    int current = counters.get(idx);
+                    if (current <= 0) {
+                        break;
+                    }
+                    int take = Math.min(current, remaining);
+                    if (counters.compareAndSet(idx, current, current - take)) {
+                        if (take < remaining) {
+                            if (taken == null) {
+                                taken = new int[size];
+                            }
+                            taken[idx / PADDING] += take;
+                        }
+                        remaining -= take;
+                        break;
+                    }
+                }
+            }
+            if (remaining > 0) {
+                rollback(taken);
+                return false;
+            }
+            return true;
+        }
+
+        void add(int count) {
+            int idx = ThreadLocalRandom.current().nextInt(size) * PADDING;
+            counters.addAndGet(idx, count);
+        }
+
+        int total() {
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                total += counters.get(i * PADDING);
+            }
+            return total;
+        }
+
+        private void rollback(int[] taken) {
+            if (taken == null) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (taken[i] > 0) {
+                    counters.addAndGet(i * PADDING, taken[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.kwanghoon.jpashop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+* 가입된 회원 이름 Bloom filter
+* mightContain 이 false 면 그 이름은 확실히 없으므로 중복 검사 쿼리를 생략한다.
+* true 면 (오탐 확률 fpp) DB 에서 확인한다.
+*
+* - 애플리케이션 시작 후 member.name 을 읽어서 채운다. 채우기 전에는 항상 true (DB 확인)
+* - 다른 노드에서 가입한 이름은 모를 수 있지만, 최종 판단은 member.name 유니크 제약이 한다.
+* - 삭제, 이름 변경 전 값은 지울 수 없다. (오탐이 늘어날 뿐 결과는 틀리지 않는다.)
+*/
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private volatile boolean warmed;
+
+    public MemberNameFilter(JdbcTemplate jdbcTemplate,
+                            @Value("${jpashop.member.name-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${jpashop.member.name-filter.fpp:0.01}") double fpp) {
+        this.jdbcTemplate = jdbcTemplate;
+        long optimalBits = (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((Math.max(optimalBits, 64) + 63) / 64));
+        this.bitSize = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.nanoTime();
+        long[] count = {0};
+        jdbcTemplate.query("select name from member", rs -> {
+            put(rs.getString(1));
+            count[0]++;
+        });
+        warmed = true;
+        log.info("회원 이름 필터 준비 완료 names={} bits={} hashes={} time={}ms",
+            count[0], bitSize, hashCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean mightContain(String name) {
+        if (!warmed) {
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String name) {
+        if (name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = index(h1 + i * h2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private long index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitSize;
+    }
+
+    /* 64bit FNV-1a + murmur3 finalizer */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
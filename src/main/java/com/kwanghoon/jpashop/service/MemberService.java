@@ -2,12 +2,17 @@ package com.kwanghoon.jpashop.service;
 
 import com.kwanghoon.jpashop.domain.Member;
 import com.kwanghoon.jpashop.repository.MemberRepository;
+import com.kwanghoon.jpashop.repository.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)  // 읽기 전용으로 약건의 최적화 효과를 얻을 수 있음 ex) 더티 체킹 같은 것
@@ -16,6 +21,8 @@ public class MemberService {
 
 //    @Autowired // 변경할 수 있는 방법이 없음
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final OrderSummaryRepository orderSummaryRepository;
 
     /* setter injection */
 //    public void setMemberRepository(MemberRepository memberRepository) {
@@ -27,23 +34,57 @@ public class MemberService {
 //        this.memberRepository = memberRepository;
 //    }
 
-    /* 회원 가입 */
+    /*
+    * 회원 가입
+    * 중복 검사는 MemberNameFilter 에 있을 수도 있는 이름만 DB 에서 확인하고,
+    * 동시에 같은 이름으로 가입하는 경우는 member.name 유니크 제약 위반으로 판단한다.
+    */
     @Transactional
     public Long join(Member member) {
-        validateDuplicateMember(member); // 중복 회원 검증
+        validateDuplicateMember(member.getName()); // 중복 회원 검증
         memberRepository.save(member);
+        flushName(member.getName());
 
         return member.getId();
     }
 
-    private void validateDuplicateMember(Member member) {
+    private void validateDuplicateMember(String name) {
+        if (!memberNameFilter.mightContain(name)) {
+            return; // 확실히 없는 이름
+        }
         // Exception
-        List<Member> findMembers = memberRepository.findByName(member.getName());
+        List<Member> findMembers = memberRepository.findByName(name);
         if (!findMembers.isEmpty()) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
+    /*
+    * 제약 위반을 여기서 확인하고, 커밋되면 이름 필터에 넣는다.
+    * (롤백된 이름이 필터에 남으면 오탐만 늘어난다.)
+    */
+    private void flushName(String name) {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (MemberRepository.isDuplicateName(e)) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+            }
+            throw e;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            memberNameFilter.put(name);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                memberNameFilter.put(name);
+            }
+        });
+    }
+
     /* 회원 전체 조회 */
     public List<Member> findMembers() {
         return memberRepository.findAll();
@@ -60,6 +101,12 @@ public class MemberService {
     @Transactional
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
+        if (Objects.equals(member.getName(), name)) {
+            return;
+        }
+        validateDuplicateMember(name); // 이름을 바꾸기 전에 검사 (findByName 의 자동 flush 에서 제약 위반이 나지 않도록)
         member.setName(name);
+        flushName(name);
+        orderSummaryRepository.updateMemberName(id, name); // 주문 목록의 회원 이름
     }
 }
@@ -0,0 +1,26 @@
+package com.kwanghoon.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* 주문 한 건 요청 (회원 + 주문상품 여러 개) */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCommand {
+
+    private Long memberId;
+    private List<Line> lines = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long itemId;
+        private int count;
+    }
+}
@@ -0,0 +1,70 @@
+package com.kwanghoon.jpashop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+* 주문 재시도
+* 낙관적 락(@Version) 충돌은 커밋 시점에 발생하므로 트랜잭션 밖에서 새 트랜잭션으로 다시 시도해야 한다.
+* 최대 maxRetries 번까지 짧은 랜덤 대기 후 재시도 (단건 주문 POST /api/v1/orders)
+* 재고 차감 방식이 optimistic 일 때만 재시도하고, 다른 방식은 충돌 예외를 그대로 던진다. (StockService)
+*
+* 메트릭
+* - jpashop.stock.optimistic.retries: 재시도 횟수
+* - jpashop.stock.optimistic.failures: 재시도를 모두 실패한 주문 수
+*/
+@Service
+public class OrderFacade {
+
+    private final OrderService orderService;
+    private final StockService stockService;
+    private final MeterRegistry meterRegistry;
+    private final int maxRetries;
+    private final long backoffMillis;
+
+    public OrderFacade(OrderService orderService,
+                       StockService stockService,
+                       MeterRegistry meterRegistry,
+                       @Value("${jpashop.stock.optimistic.max-retries:5}") int maxRetries,
+                       @Value("${jpashop.stock.optimistic.backoff-millis:5}") long backoffMillis) {
+        this.orderService = orderService;
+        this.stockService = stockService;
+        this.meterRegistry = meterRegistry;
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public Long order(Long memberId, Long itemId, int count) {
+        if (stockService.getMode() != StockService.Mode.OPTIMISTIC) {
+            return orderService.order(memberId, itemId, count);
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return orderService.order(memberId, itemId, count);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt >= maxRetries) {
+                    meterRegistry.counter("jpashop.stock.optimistic.failures").increment();
+                    throw e;
+                }
+                meterRegistry.counter("jpashop.stock.optimistic.retries").increment();
+                backoff();
+            }
+        }
+    }
+
+    private void backoff() {
+        if (backoffMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 재시도가 중단되었습니다.", e);
+        }
+    }
+}
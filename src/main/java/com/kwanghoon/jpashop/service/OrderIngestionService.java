@@ -0,0 +1,275 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.exception.OrderQueueFullException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+* 비동기 주문 접수 (group commit, jpashop.order.ingest.enabled=true 일 때만 동작)
+* 주문마다 트랜잭션을 커밋하면 주문 수만큼 커밋(fsync)과 커넥션 획득이 필요하다.
+* 주문을 큐에 넣고 워커 스레드 하나가 모아서 OrderService.orderAll 로 트랜잭션 한 번에 저장한다.
+*
+* - 배치: batchSize 개가 모이거나 첫 주문 이후 lingerMillis 가 지나면 저장
+* - 배압: 큐가 가득 차면 offerTimeoutMillis 만큼 기다린 뒤 OrderQueueFullException
+* - 결과: CompletableFuture 또는 token 으로 조회 (완료 후 resultTtlSeconds 동안 보관)
+* - 배치 트랜잭션 자체가 실패하면 (제약 조건 위반, DB 장애 등) 배치는 롤백되고 주문을 한 건씩 다시 저장한다.
+*   한 건으로도 실패한 주문만 예외로 완료되고, 나머지 주문은 각자의 트랜잭션으로 커밋된다.
+* - 종료: stop() 이후에는 접수하지 않고, 이미 큐에 들어온 주문은 저장한다. (시간 안에 못 끝낸 주문은 예외로 완료)
+*
+* 메트릭
+* - jpashop.order.ingest.latency: 접수부터 커밋까지 시간
+* - jpashop.order.ingest.batch: 배치 크기
+* - jpashop.order.ingest.commit: 배치 저장 시간
+* - jpashop.order.ingest.orders: 처리한 주문 수 (처리량)
+* - jpashop.order.ingest.rejected: 큐가 가득 차서 거절한 주문 수
+* - jpashop.order.ingest.batch.failed: 한 건씩 다시 저장한 배치 수
+* - jpashop.order.ingest.queue: 큐에 대기 중인 주문 수
+*/
+@Slf4j
+@Service
+public class OrderIngestionService {
+
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long offerTimeoutMillis;
+    private final long resultTtlMillis;
+
+    private final BlockingQueue<Ticket> queue;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Timer latency;
+    private final Timer commit;
+    private final DistributionSummary batchSizes;
+
+    /* 접수(read)와 종료(write)를 맞춘다. stop() 이 running 을 내린 뒤에는 큐에 새 주문이 들어오지 않는다. */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread worker;
+
+    public OrderIngestionService(OrderService orderService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${jpashop.order.ingest.enabled:false}") boolean enabled,
+                                 @Value("${jpashop.order.ingest.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${jpashop.order.ingest.batch-size:100}") int batchSize,
+                                 @Value("${jpashop.order.ingest.linger-millis:5}") long lingerMillis,
+                                 @Value("${jpashop.order.ingest.offer-timeout-millis:0}") long offerTimeoutMillis,
+                                 @Value("${jpashop.order.ingest.result-ttl-seconds:300}") long resultTtlSeconds) {
+        this.orderService = orderService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.resultTtlMillis = TimeUnit.SECONDS.toMillis(resultTtlSeconds);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.latency = meterRegistry.timer("jpashop.order.ingest.latency");
+        this.commit = meterRegistry.timer("jpashop.order.ingest.commit");
+        this.batchSizes = meterRegistry.summary("jpashop.order.ingest.batch");
+        meterRegistry.gauge("jpashop.order.ingest.queue", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::drainLoop, "order-ingest");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /* 남은 주문을 모두 저장한 뒤 종료 */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        acceptLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        if (worker != null) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        failRemaining();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<OrderResult> submit(OrderCommand command) {
+        return enqueue(command).future;
+    }
+
+    /* @return 결과 조회용 token */
+    public String submitForToken(OrderCommand command) {
+        return enqueue(command).token;
+    }
+
+    /* 아직 처리 중이면 완료되지 않은 future, 모르는(또는 만료된) token 이면 empty */
+    public Optional<CompletableFuture<OrderResult>> find(String token) {
+        return Optional.ofNullable(tickets.get(token)).map(ticket -> ticket.future);
+    }
+
+    private Ticket enqueue(OrderCommand command) {
+        Ticket ticket = new Ticket(command);
+        boolean accepted;
+        acceptLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("비동기 주문 접수가 꺼져 있습니다. (jpashop.order.ingest.enabled)");
+            }
+            tickets.put(ticket.token, ticket);
+            accepted = queue.offer(ticket, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (!accepted) {
+            tickets.remove(ticket.token);
+            meterRegistry.counter("jpashop.order.ingest.rejected").increment();
+            throw new OrderQueueFullException("주문이 많아 접수할 수 없습니다. 잠시 후 다시 시도해 주세요.");
+        }
+        return ticket;
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Ticket> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    Ticket next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void persist(List<Ticket> batch) {
+        List<OrderCommand> commands = new ArrayList<>(batch.size());
+        batch.forEach(ticket -> commands.add(ticket.command));
+
+        long start = System.nanoTime();
+        try {
+            List<OrderResult> results = orderService.orderAll(commands);
+            long now = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), now);
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+            } else {
+                /* 배치는 롤백되었으므로 한 건씩 다시 저장해서 실패 원인인 주문만 골라낸다. */
+                log.warn("주문 배치 저장 실패, 한 건씩 다시 저장 size={}", batch.size(), e);
+                meterRegistry.counter("jpashop.order.ingest.batch.failed").increment();
+                batch.forEach(this::persistOne);
+            }
+        } finally {
+            commit.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+            meterRegistry.counter("jpashop.order.ingest.orders").increment(batch.size());
+        }
+    }
+
+    private void persistOne(Ticket ticket) {
+        try {
+            OrderResult result = orderService.orderAll(Collections.singletonList(ticket.command)).get(0);
+            complete(ticket, System.nanoTime());
+            ticket.future.complete(result);
+        } catch (RuntimeException e) {
+            fail(ticket, e);
+        }
+    }
+
+    private void fail(Ticket ticket, Throwable e) {
+        log.warn("주문 저장 실패 token={}", ticket.token, e);
+        complete(ticket, System.nanoTime());
+        ticket.future.completeExceptionally(e);
+    }
+
+    /* 워커가 시간 안에 비우지 못한 주문 */
+    private void failRemaining() {
+        List<Ticket> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        log.warn("종료 전에 저장하지 못한 주문 size={}", remaining.size());
+        IllegalStateException e = new IllegalStateException("주문 접수가 종료되어 저장하지 못했습니다.");
+        long now = System.nanoTime();
+        for (Ticket ticket : remaining) {
+            complete(ticket, now);
+            ticket.future.completeExceptionally(e);
+        }
+    }
+
+    private void complete(Ticket ticket, long now) {
+        ticket.completedAt = System.currentTimeMillis();
+        latency.record(now - ticket.enqueuedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /* 완료 후 resultTtl 이 지난 결과 정리 */
+    @Scheduled(fixedDelay = 60_000)
+    public void expireResults() {
+        long expireBefore = System.currentTimeMillis() - resultTtlMillis;
+        tickets.values().removeIf(ticket -> ticket.completedAt != 0 && ticket.completedAt < expireBefore);
+    }
+
+    private static class Ticket {
+        final String token = UUID.randomUUID().toString();
+        final OrderCommand command;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<OrderResult> future = new CompletableFuture<>();
+        volatile long completedAt;
+
+        Ticket(OrderCommand command) {
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.repository.order.query.OrderFlatAssembler;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+* 주문 DTO 조회 전략을 자동으로 고른다. (OrderApiController 주석의 V4/V5/V6 선택 기준)
+* - 주문이 1건 이하: V4 (1 + 1 쿼리, 코드가 가장 단순)
+* - 전체 row 수(주문 수 * 평균 상품 수)가 작고 주문당 상품 수가 적음: V6 (쿼리 1번, 중복 전송 적음)
+* - 그 외: V5 (1 + 1 쿼리)
+*
+* 건수는 count 쿼리로 구하고 statsTtl 동안 캐시한다.
+* 건수는 비용 추정에만 쓴다. 세 전략은 항상 같은 결과(주문 상품이 없는 주문 포함)를 돌려주므로
+* 캐시된 건수가 현재와 달라도 느린 전략을 고를 수 있을 뿐 결과가 달라지지는 않는다.
+* 선택한 전략과 소요 시간은 jpashop.order.query 메트릭(strategy 태그)으로 남긴다.
+*/
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class OrderQueryService {
+
+    public enum Strategy {
+        V4, V5, V6
+    }
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final MeterRegistry meterRegistry;
+    private final long statsTtlNanos;
+    private final long flatRowLimit;
+    private final double flatMaxItemsPerOrder;
+
+    private volatile CardinalityStats stats;
+
+    public OrderQueryService(OrderQueryRepository orderQueryRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${jpashop.order.planner.stats-ttl-seconds:60}") long statsTtlSeconds,
+                             @Value("${jpashop.order.planner.flat-row-limit:10000}") long flatRowLimit,
+                             @Value("${jpashop.order.planner.flat-max-items-per-order:3}") double flatMaxItemsPerOrder) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.meterRegistry = meterRegistry;
+        this.statsTtlNanos = TimeUnit.SECONDS.toNanos(statsTtlSeconds);
+        this.flatRowLimit = flatRowLimit;
+        this.flatMaxItemsPerOrder = flatMaxItemsPerOrder;
+    }
+
+    public List<OrderQueryDto> findOrders() {
+        return findOrders(choose(currentStats()));
+    }
+
+    List<OrderQueryDto> findOrders(Strategy strategy) {
+        switch (strategy) {
+            case V4:
+                return record(strategy, orderQueryRepository::findOrderQueryDtos);
+            case V6:
+                return record(strategy, () -> OrderFlatAssembler.assemble(orderQueryRepository.findAllByDto_flat()));
+            default:
+                return record(strategy, orderQueryRepository::findAllByDto_optimization);
+        }
+    }
+
+    Strategy choose(CardinalityStats stats) {
+        if (stats.getOrderCount() <= 1) {
+            return Strategy.V4;
+        }
+        if (stats.getOrderItemCount() <= flatRowLimit && stats.avgItemsPerOrder() <= flatMaxItemsPerOrder) {
+            return Strategy.V6;
+        }
+        return Strategy.V5;
+    }
+
+    private CardinalityStats currentStats() {
+        CardinalityStats current = stats;
+        if (current == null || System.nanoTime() - current.getCollectedAt() > statsTtlNanos) {
+            current = new CardinalityStats(orderQueryRepository.countOrders(), orderQueryRepository.countOrderItems(), System.nanoTime());
+            stats = current;
+        }
+        return current;
+    }
+
+    private List<OrderQueryDto> record(Strategy strategy, Supplier<List<OrderQueryDto>> query) {
+        long start = System.nanoTime();
+        List<OrderQueryDto> result = query.get();
+        long elapsed = System.nanoTime() - start;
+
+        meterRegistry.timer("jpashop.order.query", "strategy", strategy.name()).record(elapsed, TimeUnit.NANOSECONDS);
+        log.debug("order query strategy={} orders={} time={}ms", strategy, result.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return result;
+    }
+
+    @Getter
+    static class CardinalityStats {
+        private final long orderCount;
+        private final long orderItemCount;
+        private final long collectedAt;
+
+        CardinalityStats(long orderCount, long orderItemCount, long collectedAt) {
+            this.orderCount = orderCount;
+            this.orderItemCount = orderItemCount;
+            this.collectedAt = collectedAt;
+        }
+
+        double avgItemsPerOrder() {
+            return orderCount == 0 ? 0 : (double) orderItemCount / orderCount;
+        }
+    }
+}
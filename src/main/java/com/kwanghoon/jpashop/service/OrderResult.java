@@ -0,0 +1,30 @@
+package com.kwanghoon.jpashop.service;
+
+import lombok.Getter;
+
+/* 주문 한 건 처리 결과, 실패해도 다른 주문은 계속 처리한다. */
+@Getter
+public class OrderResult {
+
+    private final Long orderId;
+    private final boolean success;
+    private final String error;
+
+    private OrderResult(Long orderId, boolean success, String error) {
+        this.orderId = orderId;
+        this.success = success;
+        this.error = error;
+    }
+
+    public static OrderResult success(Long orderId) {
+        return new OrderResult(orderId, true, null);
+    }
+
+    public static OrderResult fail(String error) {
+        return new OrderResult(null, false, error);
+    }
+
+    public static OrderResult fail(Long orderId, String error) {
+        return new OrderResult(orderId, false, error);
+    }
+}
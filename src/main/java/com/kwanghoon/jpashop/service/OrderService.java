@@ -1,17 +1,33 @@
 package com.kwanghoon.jpashop.service;
 
+import com.kwanghoon.jpashop.domain.Address;
 import com.kwanghoon.jpashop.domain.Delivery;
+import com.kwanghoon.jpashop.domain.DeliveryStatus;
 import com.kwanghoon.jpashop.domain.Member;
 import com.kwanghoon.jpashop.domain.Order;
 import com.kwanghoon.jpashop.domain.OrderItem;
+import com.kwanghoon.jpashop.domain.OrderStatus;
 import com.kwanghoon.jpashop.domain.item.Item;
+import com.kwanghoon.jpashop.exception.NotEnoughStockException;
 import com.kwanghoon.jpashop.repository.ItemRepository;
 import com.kwanghoon.jpashop.repository.MemberRepository;
 import com.kwanghoon.jpashop.repository.OrderRepository;
+import com.kwanghoon.jpashop.repository.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class OrderService {
@@ -19,6 +35,8 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockService stockService;
+    private final OrderSummaryRepository orderSummaryRepository;
 
     // 주문
     @Transactional
@@ -31,25 +49,171 @@ public class OrderService {
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
 
-        // 주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        // 주문상품 생성 (재고 차감 방식은 StockService 참고)
+        OrderItem orderItem = stockService.reserve(item, item.getPrice(), count);
 
         // 주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
 
-        // 주문 저장
+        // 주문 저장 (+ 목록 조회용 요약)
         orderRepository.save(order);
+        orderSummaryRepository.save(order);
 
         return order.getId();
     }
 
+    /*
+    * 대량 주문
+    * - 회원, 상품을 IN 쿼리 한 번씩으로 조회 (상품 락 여부는 재고 차감 방식을 따른다. StockService.findItems)
+    * - 주문마다 검증해서 실패한 주문은 결과에만 기록하고 나머지 주문은 계속 진행 (null 주문, null 주문상품 포함)
+    * - 재고는 주문 단위로 모두 차감하거나 하나도 차감하지 않는다. (StockService.Batch)
+    * - insert 는 hibernate.jdbc.batch_size + order_inserts 설정으로 JDBC batch 실행
+    */
+    @Transactional
+    public List<OrderResult> orderAll(List<OrderCommand> commands) {
+        Set<Long> memberIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        for (OrderCommand command : commands) {
+            if (command == null) {
+                continue;
+            }
+            if (command.getMemberId() != null) {
+                memberIds.add(command.getMemberId());
+            }
+            if (command.getLines() != null) {
+                command.getLines().forEach(line -> {
+                    if (line != null && line.getItemId() != null) {
+                        itemIds.add(line.getItemId());
+                    }
+                });
+            }
+        }
+
+        Map<Long, Member> members = memberIds.isEmpty() ? new HashMap<>() : memberRepository.findAllById(memberIds)
+            .stream()
+            .collect(Collectors.toMap(Member::getId, m -> m));
+        Map<Long, Item> items = itemIds.isEmpty() ? new HashMap<>() : stockService.findItems(itemIds)
+            .stream()
+            .collect(Collectors.toMap(Item::getId, i -> i));
+
+        OrderResult[] results = new OrderResult[commands.size()];
+        List<List<OrderCommand.Line>> validLines = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i++) {
+            String error = validate(commands.get(i), members, items);
+            if (error != null) {
+                results[i] = OrderResult.fail(error);
+            } else {
+                validLines.add(commands.get(i).getLines());
+            }
+        }
+
+        StockService.Batch batch = stockService.beginBatch(validLines, items);
+        for (int i = 0; i < commands.size(); i++) {
+            if (results[i] == null) {
+                results[i] = placeOrder(commands.get(i), members, batch);
+            }
+        }
+        batch.finish();
+        return Arrays.asList(results);
+    }
+
+    /* @return 실패 사유, 통과하면 null */
+    private String validate(OrderCommand command, Map<Long, Member> members, Map<Long, Item> items) {
+        if (command == null) {
+            return "주문 정보가 없습니다.";
+        }
+        if (!members.containsKey(command.getMemberId())) {
+            return "회원이 존재하지 않습니다.";
+        }
+        if (command.getLines() == null || command.getLines().isEmpty()) {
+            return "주문상품이 없습니다.";
+        }
+        for (OrderCommand.Line line : command.getLines()) {
+            if (line == null) {
+                return "주문상품 정보가 없습니다.";
+            }
+            if (!items.containsKey(line.getItemId())) {
+                return "상품이 존재하지 않습니다. itemId=" + line.getItemId();
+            }
+            if (line.getCount() <= 0) {
+                return "주문 수량은 1 이상이어야 합니다.";
+            }
+        }
+        return null;
+    }
+
+    private OrderResult placeOrder(OrderCommand command, Map<Long, Member> members, StockService.Batch batch) {
+        Member member = members.get(command.getMemberId());
+
+        // 주문상품 생성 (재고 차감 방식은 StockService 참고)
+        OrderItem[] orderItems;
+        try {
+            orderItems = batch.reserveAll(command.getLines()).toArray(new OrderItem[0]);
+        } catch (NotEnoughStockException e) {
+            return OrderResult.fail(e.getMessage());
+        }
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, orderItems);
+        orderRepository.save(order);
+        orderSummaryRepository.save(order);
+        return OrderResult.success(order.getId());
+    }
+
     // 취소
     @Transactional
     public void cancelOrder(Long orderId) {
         // 주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
-        // 주문 취소
-        order.cancel();
+        // 주문 취소 (재고 복구는 StockService 의 재고 차감 방식을 따른다.)
+        order.cancel(stockService::release);
+        orderSummaryRepository.updateStatus(Collections.singleton(orderId), OrderStatus.CANCEL);
+    }
+
+    /* 배송지 변경 (+ 목록 조회용 요약) */
+    @Transactional
+    public void updateDeliveryAddress(Long orderId, Address address) {
+        Order order = orderRepository.findOne(orderId);
+        order.getDelivery().setAddress(address);
+        orderSummaryRepository.updateAddress(orderId, address);
+    }
+
+    /*
+    * 대량 취소
+    * - 주문과 배송을 쓰기 락으로 한 번에 조회해서 주문마다 취소 가능 여부 확인
+    * - 재고 복구는 상품별 수량 합계로 상품당 UPDATE 한 번 (StockService.releaseAll)
+    * - 주문 상태는 UPDATE 한 번으로 변경, 이후 영속성 컨텍스트는 비워진다. (OrderRepository.cancelAll)
+    */
+    @Transactional
+    public List<OrderResult> cancelAll(List<Long> orderIds) {
+        Map<Long, Order> orders = orderIds.isEmpty() ? new HashMap<>() : orderRepository.findAllWithDeliveryForUpdate(new HashSet<>(orderIds))
+            .stream()
+            .collect(Collectors.toMap(Order::getId, o -> o));
+
+        Set<Long> cancelIds = new LinkedHashSet<>();
+        List<OrderResult> results = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            Order order = orders.get(orderId);
+            if (order == null) {
+                results.add(OrderResult.fail(orderId, "주문이 존재하지 않습니다."));
+            } else if (order.getStatus() == OrderStatus.CANCEL || cancelIds.contains(orderId)) {
+                results.add(OrderResult.fail(orderId, "이미 취소된 주문입니다."));
+            } else if (order.getDelivery().getStatus() == DeliveryStatus.COMP) {
+                results.add(OrderResult.fail(orderId, "이미 배송완료된 상품은 취소가 불가능합니다."));
+            } else {
+                cancelIds.add(orderId);
+                results.add(OrderResult.success(orderId));
+            }
+        }
+
+        if (!cancelIds.isEmpty()) {
+            stockService.releaseAll(orderRepository.sumCountByItem(cancelIds));
+            orderRepository.cancelAll(cancelIds);
+            orderSummaryRepository.updateStatus(cancelIds, OrderStatus.CANCEL);
+        }
+        return results;
     }
 
     // 검섹
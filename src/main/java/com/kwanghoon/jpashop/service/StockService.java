@@ -0,0 +1,273 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.domain.OrderItem;
+import com.kwanghoon.jpashop.domain.item.Item;
+import com.kwanghoon.jpashop.exception.NotEnoughStockException;
+import com.kwanghoon.jpashop.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 주문 시 재고 차감 방식 (jpashop.stock.mode)
+* - entity: Item.removeStock 으로 차감 후 변경 감지 (기존 방식, @Version 으로 충돌 시 예외, 재시도 없음)
+* - atomic: update ... set stock = stock - ? where stock >= ? 로 DB 에서 원자적으로 차감
+*           락을 잡지 않으므로 인기 상품에 주문이 몰려도 직렬화되지 않는다.
+* - optimistic: entity 와 같이 차감하고, 버전 충돌 시 OrderFacade 에서 트랜잭션을 재시도 (이 모드에서만 재시도)
+* - ledger: InventoryLedger 의 메모리 재고에서 차감, item row 는 lease/flush 할 때만 갱신
+*           주문 트랜잭션이 롤백되면 차감한 재고를 원장에 되돌린다.
+*
+* 주문 취소 시 재고 복구도 release 로 같은 방식을 따른다.
+* 단, ledger 모드의 취소는 원장이 아니라 취소 트랜잭션 안에서 DB 재고에 바로 더한다. (atomic 과 같음)
+* 원장에 먼저 돌려주면 취소가 커밋되기 전에 다른 주문이 그 재고를 가져갈 수 있고,
+* 원장 밖에서 들어온 재고는 재시작 시 StockLease 로 복구할 수 없기 때문
+*
+* 메트릭
+* - jpashop.stock.reserve: 재고 차감 시간 (mode 태그)
+* - jpashop.stock.rejected: 재고 부족으로 거절된 주문 수
+*/
+@Service
+public class StockService {
+
+    public enum Mode {
+        ENTITY, ATOMIC, OPTIMISTIC, LEDGER
+    }
+
+    private final ItemRepository itemRepository;
+    private final InventoryLedger inventoryLedger; // ledger 모드에서만 (그 외에는 null)
+    private final MeterRegistry meterRegistry;
+    private final Mode mode;
+
+    public StockService(ItemRepository itemRepository,
+                        ObjectProvider<InventoryLedger> inventoryLedger,
+                        MeterRegistry meterRegistry,
+                        @Value("${jpashop.stock.mode:entity}") String mode) {
+        this.itemRepository = itemRepository;
+        this.meterRegistry = meterRegistry;
+        this.mode = Mode.valueOf(mode.toUpperCase());
+        this.inventoryLedger = this.mode == Mode.LEDGER ? inventoryLedger.getObject() : null;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /* 재고를 차감하고 주문상품 생성 */
+    public OrderItem reserve(Item item, int orderPrice, int count) {
+        long start = System.nanoTime();
+        try {
+            if (mode == Mode.ATOMIC) {
+                if (!itemRepository.decreaseStock(item.getId(), count)) {
+                    throw new NotEnoughStockException("need more stock");
+                }
+            }
+            if (mode == Mode.LEDGER) {
+                if (!inventoryLedger.reserve(item.getId(), count)) {
+                    throw new NotEnoughStockException("need more stock");
+                }
+                releaseOnRollback(item.getId(), count);
+            }
+            return createOrderItem(item, orderPrice, count);
+        } catch (NotEnoughStockException e) {
+            meterRegistry.counter("jpashop.stock.rejected", "mode", mode.name()).increment();
+            throw e;
+        } finally {
+            meterRegistry.timer("jpashop.stock.reserve", "mode", mode.name()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /*
+    * 대량 주문에서 쓸 상품 조회 (OrderService.orderAll)
+    * - entity, optimistic: 재고 검사 결과가 커밋까지 유지되도록 id 순서로 쓰기 락
+    * - atomic, ledger: 차감 자체가 원자적이므로 락을 잡지 않는다.
+    */
+    public List<Item> findItems(Collection<Long> itemIds) {
+        if (mode == Mode.ATOMIC || mode == Mode.LEDGER) {
+            return itemRepository.findAllById(itemIds);
+        }
+        return itemRepository.findAllForUpdate(itemIds);
+    }
+
+    /*
+    * 주문 하나의 주문상품을 모두 차감하고 생성 (대량 주문)
+    * 하나라도 재고가 부족하면 이미 차감한 재고를 바로 되돌리고 NotEnoughStockException
+    * 같은 트랜잭션에서 다음 주문을 계속 처리하므로 롤백에 기댈 수 없다.
+    *
+    * @param items findItems 로 조회한 상품 (itemId -> Item)
+    */
+    public List<OrderItem> reserveAll(List<OrderCommand.Line> lines, Map<Long, Item> items) {
+        takeTimed(demandOf(lines), items);
+        return createOrderItems(lines, items);
+    }
+
+    /*
+    * 대량 주문 한 번(한 트랜잭션)의 재고 차감 시작 (OrderService.orderAll)
+    * 주문마다 Batch.reserveAll, 마지막에 Batch.finish 를 호출해야 한다.
+    *
+    * @param orders 검증을 통과한 주문들의 주문상품
+    */
+    public Batch beginBatch(List<List<OrderCommand.Line>> orders, Map<Long, Item> items) {
+        return new Batch(orders, items);
+    }
+
+    /*
+    * atomic 모드는 배치 전체의 상품별 수량 합계를 상품당 UPDATE 한 번으로 먼저 차감해 두고 주문마다 나눠준다.
+    * -> 같은 상품에 주문이 몰려도 배치당 UPDATE 1번, 주문마다 UPDATE 하지 않는다.
+    * 합계만큼 재고가 없는 상품만 주문마다 차감한다. (남은 재고만큼은 팔아야 하므로)
+    * 실패한 주문 몫으로 먼저 차감한 재고는 finish 에서 상품당 UPDATE 한 번으로 돌려준다.
+    * 다른 모드는 주문마다 reserveAll 과 같다.
+    */
+    public class Batch {
+
+        private final Map<Long, Item> items;
+        private final Map<Long, Integer> prepaid = new TreeMap<>(); // 먼저 차감했지만 아직 나눠주지 않은 수량
+
+        private Batch(List<List<OrderCommand.Line>> orders, Map<Long, Item> items) {
+            this.items = items;
+            if (mode != Mode.ATOMIC) {
+                return;
+            }
+            Map<Long, Integer> total = new TreeMap<>(); // 교착 상태를 피하기 위해 id 순서로 갱신
+            orders.forEach(lines -> lines.forEach(line -> total.merge(line.getItemId(), line.getCount(), Integer::sum)));
+            total.forEach((itemId, count) -> {
+                if (itemRepository.decreaseStock(itemId, count)) {
+                    prepaid.put(itemId, count);
+                }
+            });
+        }
+
+        public List<OrderItem> reserveAll(List<OrderCommand.Line> lines) {
+            if (mode != Mode.ATOMIC) {
+                return StockService.this.reserveAll(lines, items);
+            }
+            Map<Long, Integer> demand = demandOf(lines);
+            Map<Long, Integer> rest = new LinkedHashMap<>(demand);
+            rest.keySet().removeAll(prepaid.keySet());
+            takeTimed(rest, items);
+
+            demand.forEach((itemId, count) -> prepaid.computeIfPresent(itemId, (id, left) -> left - count));
+            return createOrderItems(lines, items);
+        }
+
+        public void finish() {
+            prepaid.values().removeIf(left -> left <= 0);
+            if (!prepaid.isEmpty()) {
+                itemRepository.increaseStock(prepaid);
+                prepaid.clear();
+            }
+        }
+    }
+
+    private static Map<Long, Integer> demandOf(List<OrderCommand.Line> lines) {
+        Map<Long, Integer> demand = new LinkedHashMap<>();
+        lines.forEach(line -> demand.merge(line.getItemId(), line.getCount(), Integer::sum));
+        return demand;
+    }
+
+    private void takeTimed(Map<Long, Integer> demand, Map<Long, Item> items) {
+        long start = System.nanoTime();
+        try {
+            take(demand, items);
+        } catch (NotEnoughStockException e) {
+            meterRegistry.counter("jpashop.stock.rejected", "mode", mode.name()).increment();
+            throw e;
+        } finally {
+            meterRegistry.timer("jpashop.stock.reserve", "mode", mode.name()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private List<OrderItem> createOrderItems(List<OrderCommand.Line> lines, Map<Long, Item> items) {
+        List<OrderItem> orderItems = new ArrayList<>(lines.size());
+        for (OrderCommand.Line line : lines) {
+            Item item = items.get(line.getItemId());
+            orderItems.add(createOrderItem(item, item.getPrice(), line.getCount()));
+        }
+        return orderItems;
+    }
+
+    /* 상품별 수량 합계만큼 차감, entity 모드는 검사만 하고 차감은 createOrderItem 에서 */
+    private void take(Map<Long, Integer> demand, Map<Long, Item> items) {
+        Map<Long, Integer> taken = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : demand.entrySet()) {
+            Long itemId = entry.getKey();
+            int count = entry.getValue();
+            boolean enough;
+            if (mode == Mode.ATOMIC) {
+                enough = itemRepository.decreaseStock(itemId, count);
+            } else if (mode == Mode.LEDGER) {
+                enough = inventoryLedger.reserve(itemId, count);
+            } else {
+                enough = items.get(itemId).getStockQuantity() >= count;
+            }
+            if (!enough) {
+                if (mode == Mode.ATOMIC && !taken.isEmpty()) {
+                    itemRepository.increaseStock(taken);
+                } else if (mode == Mode.LEDGER) {
+                    taken.forEach(inventoryLedger::release);
+                }
+                throw new NotEnoughStockException("재고가 부족합니다. itemId=" + itemId);
+            }
+            taken.put(itemId, count);
+        }
+
+        if (mode == Mode.LEDGER) {
+            taken.forEach(this::releaseOnRollback);
+        }
+    }
+
+    /* 재고 차감 이후 주문상품 생성, entity 계열은 여기서 Item.removeStock */
+    private OrderItem createOrderItem(Item item, int orderPrice, int count) {
+        if (mode == Mode.ATOMIC) {
+            return OrderItem.createReservedOrderItem(item, orderPrice, count);
+        }
+        if (mode == Mode.LEDGER) {
+            OrderItem orderItem = OrderItem.createReservedOrderItem(item, orderPrice, count);
+            orderItem.setLeaseEpoch(inventoryLedger.getEpoch());
+            return orderItem;
+        }
+        return OrderItem.createOrderItem(item, orderPrice, count);
+    }
+
+    /* 주문상품 취소 시 재고 복구 */
+    public void release(OrderItem orderItem) {
+        if (mode == Mode.LEDGER) {
+            // 원장이 lease/flush 로 item row 를 따로 갱신하므로 변경 감지 대신 원자적으로 더한다. (버전 충돌 방지)
+            itemRepository.increaseStock(Collections.singletonMap(orderItem.getItem().getId(), orderItem.getCount()));
+            return;
+        }
+        orderItem.cancel();
+    }
+
+    /* 대량 취소 시 재고 복구, 상품별 수량 합계 (itemId -> count) */
+    public void releaseAll(Map<Long, Integer> quantities) {
+        itemRepository.increaseStock(quantities);
+    }
+
+    /* count 만큼 원장에서 차감한 상태, 롤백되면 되돌린다. */
+    private void releaseOnRollback(Long itemId, int count) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    inventoryLedger.release(itemId, count);
+                }
+            }
+        });
+    }
+}
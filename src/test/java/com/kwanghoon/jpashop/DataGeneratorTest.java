@@ -0,0 +1,44 @@
+package com.kwanghoon.jpashop;
+
+import com.kwanghoon.jpashop.DataGenerator.GeneratorProperties;
+import org.junit.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DataGeneratorTest {
+
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    public void hot_개수는_1_이상_전체_이하로_고른다() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, DataGenerator.pick(random, 1, 0, 1.0));   // hot 0 -> 1
+            assertTrue(DataGenerator.pick(random, 5, 100, 1.0) < 5); // hot > total -> total
+        }
+    }
+
+    @Test
+    public void 기본값은_유효하다() throws Exception {
+        assertTrue(validator.validate(new GeneratorProperties()).isEmpty());
+    }
+
+    @Test
+    public void 잘못된_설정은_거부한다() throws Exception {
+        // given
+        GeneratorProperties properties = new GeneratorProperties();
+        properties.setItems(0);
+        properties.setHotItemShare(1.5);
+        properties.setBatchSize(0);
+
+        // when
+        int violations = validator.validate(properties).size();
+
+        // then
+        assertEquals(3, violations);
+    }
+}
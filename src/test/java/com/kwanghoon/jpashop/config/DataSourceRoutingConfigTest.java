@@ -0,0 +1,108 @@
+package com.kwanghoon.jpashop.config;
+
+import com.kwanghoon.jpashop.JpaShopApplication;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+
+/*
+* JpaTransactionManager + RoutingDataSource
+* primary 는 테스트 기본 H2, 복제본은 별도 H2 (각 DB 의 routing_target 테이블에 자기 이름을 넣어 둔다.)
+*/
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.jpa.open-in-view=false",
+    "jpashop.datasource.routing.enabled=true",
+    "jpashop.datasource.routing.check-interval-millis=0",
+    "jpashop.datasource.routing.replicas[0].name=jpa-replica",
+    "jpashop.datasource.routing.replicas[0].url=" + DataSourceRoutingConfigTest.REPLICA_URL
+})
+public class DataSourceRoutingConfigTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-jpa-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnlyTx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        tx.execute(status -> createTarget(new JdbcTemplate(dataSource), "primary"));
+        createTarget(new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "")), "jpa-replica");
+    }
+
+    @After
+    public void tearDown() {
+        RoutingDataSource.closeScope();
+    }
+
+    @Test
+    public void 읽기_전용_JPA_트랜잭션은_복제본() throws Exception {
+        assertEquals("jpa-replica", readOnlyTx.execute(status -> target()));
+        assertEquals("primary", tx.execute(status -> target()));
+    }
+
+    @Test
+    public void 요청_안에서_쓰기_이후_읽기는_primary() throws Exception {
+        RoutingDataSource.openScope();
+
+        tx.execute(status -> target());
+
+        assertEquals("primary", readOnlyTx.execute(status -> target()));
+    }
+
+    @Test
+    public void OSIV_가_켜져_있으면_시작하지_않는다() throws Exception {
+        try {
+            new SpringApplicationBuilder(JpaShopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("jpashop.datasource.routing.enabled=true")
+                .run()
+                .close();
+            fail("OSIV 와 함께 시작되면 안 된다.");
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertTrue(cause.getMessage(), cause.getMessage().contains("spring.jpa.open-in-view=false"));
+        }
+    }
+
+    private String target() {
+        return (String) em.createNativeQuery("select name from routing_target").getSingleResult();
+    }
+
+    private static Object createTarget(JdbcTemplate jdbcTemplate, String name) {
+        jdbcTemplate.execute("create table if not exists routing_target (name varchar(50))");
+        jdbcTemplate.update("delete from routing_target");
+        jdbcTemplate.update("insert into routing_target (name) values (?)", name);
+        return null;
+    }
+}
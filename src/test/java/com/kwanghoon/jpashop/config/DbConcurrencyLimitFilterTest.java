@@ -0,0 +1,91 @@
+package com.kwanghoon.jpashop.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DbConcurrencyLimitFilterTest {
+
+    @Test
+    public void limit_을_넘는_요청은_기다리다_503() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DbConcurrencyLimitFilter filter = new DbConcurrencyLimitFilter(1, 50, meterRegistry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServlet slow = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/v3/members"), first, new MockFilterChain(slow));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        // when
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v3/members"), second, new MockFilterChain());
+
+        // then
+        assertEquals(503, second.getStatus());
+        assertEquals("1", second.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.counter("jpashop.db.concurrency.rejected").count(), 0);
+
+        release.countDown();
+        holder.join();
+        assertEquals(200, first.getStatus());
+
+        MockHttpServletResponse third = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v3/members"), third, new MockFilterChain());
+        assertEquals("permit 을 반환하면 다시 받는다.", 200, third.getStatus());
+    }
+
+    @Test
+    public void 비동기_응답은_끝날_때_permit_을_반환한다() throws Exception {
+        DbConcurrencyLimitFilter filter = new DbConcurrencyLimitFilter(1, 0, new SimpleMeterRegistry());
+        HttpServlet streaming = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync(); // ex) StreamingResponseBody
+            }
+        };
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v5/orders/stream");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(streaming));
+
+        // when
+        MockHttpServletResponse during = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v3/members"), during, new MockFilterChain());
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        MockHttpServletResponse after = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v3/members"), after, new MockFilterChain());
+
+        // then
+        assertEquals("요청 스레드가 반환되어도 응답이 끝날 때까지 permit 을 잡고 있다.", 503, during.getStatus());
+        assertEquals(200, after.getStatus());
+    }
+}
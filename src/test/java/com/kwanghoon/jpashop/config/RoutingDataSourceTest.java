@@ -0,0 +1,98 @@
+package com.kwanghoon.jpashop.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/* H2 두 개를 primary, 복제본으로 사용 (각 DB 의 target 테이블에 자기 이름을 넣어 둔다.) */
+public class RoutingDataSourceTest {
+
+    private final DataSource primary = database("routing-primary");
+    private final DataSource replica = database("routing-replica");
+
+    @After
+    public void tearDown() {
+        RoutingDataSource.closeScope();
+    }
+
+    @Test
+    public void 읽기_전용_트랜잭션은_복제본() throws Exception {
+        Routing routing = new Routing(Collections.emptyMap());
+
+        assertEquals("routing-replica", routing.read());
+        assertEquals("routing-primary", routing.write());
+    }
+
+    @Test
+    public void 쓰기_이후_읽기는_primary() throws Exception {
+        Routing routing = new Routing(Collections.emptyMap());
+        RoutingDataSource.openScope(); // 요청 시작
+
+        routing.write();
+
+        assertEquals("routing-primary", routing.read());
+        RoutingDataSource.closeScope(); // 요청 종료
+        assertEquals("routing-replica", routing.read());
+    }
+
+    @Test
+    public void 범위_밖의_쓰기는_기록하지_않는다() throws Exception {
+        Routing routing = new Routing(Collections.emptyMap());
+
+        routing.write(); // ex) 배치, 스케줄러 스레드
+
+        assertEquals("routing-replica", routing.read());
+    }
+
+    @Test
+    public void 지연된_복제본은_제외() throws Exception {
+        Routing routing = new Routing(Collections.singletonMap("replica", "select 100"));
+
+        assertEquals("routing-primary", routing.read());
+    }
+
+    private class Routing {
+        final JdbcTemplate jdbcTemplate;
+        final TransactionTemplate readOnlyTx;
+        final TransactionTemplate tx;
+
+        Routing(Map<String, String> lagQueries) {
+            RoutingDataSource routingDataSource = new RoutingDataSource(primary, Collections.singletonMap("replica", replica),
+                lagQueries, 5, 0, new SimpleMeterRegistry());
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            tx = new TransactionTemplate(transactionManager);
+            readOnlyTx = new TransactionTemplate(transactionManager);
+            readOnlyTx.setReadOnly(true);
+        }
+
+        String read() {
+            return readOnlyTx.execute(status -> jdbcTemplate.queryForObject("select name from target", String.class));
+        }
+
+        String write() {
+            return tx.execute(status -> jdbcTemplate.queryForObject("select name from target", String.class));
+        }
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists target (name varchar(50))");
+        jdbcTemplate.update("delete from target");
+        jdbcTemplate.update("insert into target (name) values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,44 @@
+package com.kwanghoon.jpashop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class NdjsonWriterTest {
+
+    NdjsonWriter ndjsonWriter = new NdjsonWriter(new ObjectMapper());
+
+    @Test
+    public void 한_줄에_하나씩_쓴다() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        ndjsonWriter.write(out, 2, consumer -> Arrays.asList(
+            Collections.singletonMap("id", 1),
+            Collections.singletonMap("id", 2),
+            Collections.singletonMap("id", 3)
+        ).forEach(consumer));
+
+        // then
+        assertEquals("{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void 비어_있으면_아무것도_쓰지_않는다() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        ndjsonWriter.stream(100, consumer -> { }).writeTo(out);
+
+        // then
+        assertEquals(0, out.size());
+    }
+}
@@ -0,0 +1,64 @@
+package com.kwanghoon.jpashop.controller.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/* 전용 serializer 출력이 기본 ObjectMapper (스프링 부트 설정) 와 같아야 한다. */
+public class OrderJsonModuleTest {
+
+    ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    ObjectMapper orderMapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .modulesToInstall(new OrderJsonModule())
+        .build();
+
+    @Test
+    public void OrderQueryDto_기본_출력과_같다() throws Exception {
+        for (LocalDateTime orderDate : dates()) {
+            OrderQueryDto order = new OrderQueryDto(1L, "회원\"A\"", orderDate, OrderStatus.ORDER, new Address("서울", null, "123-123"),
+                Arrays.asList(new OrderItemQueryDto(1L, "JPA1 BOOK", 10000, 1), new OrderItemQueryDto(1L, "JPA2 BOOK", 20000, 2)));
+
+            assertEquals(defaultMapper.writeValueAsString(order), orderMapper.writeValueAsString(order));
+        }
+    }
+
+    @Test
+    public void OrderSimpleQueryDto_기본_출력과_같다() throws Exception {
+        for (LocalDateTime orderDate : dates()) {
+            OrderSimpleQueryDto order = new OrderSimpleQueryDto(2L, "userB", orderDate, OrderStatus.CANCEL, new Address("부산", "해운대", "456"));
+
+            assertEquals(defaultMapper.writeValueAsString(order), orderMapper.writeValueAsString(order));
+        }
+    }
+
+    @Test
+    public void null_필드() throws Exception {
+        OrderQueryDto order = new OrderQueryDto(null, null, null, null, null);
+
+        assertEquals(defaultMapper.writeValueAsString(order), orderMapper.writeValueAsString(order));
+    }
+
+    private LocalDateTime[] dates() {
+        return new LocalDateTime[]{
+            LocalDateTime.of(2020, 1, 2, 3, 4),
+            LocalDateTime.of(2020, 12, 31, 23, 59, 59, 100_000_000),
+            LocalDateTime.of(2021, 6, 7, 8, 9, 10, 123_456_789),
+            LocalDateTime.of(999, 1, 1, 0, 0, 0, 1_000)
+        };
+    }
+}
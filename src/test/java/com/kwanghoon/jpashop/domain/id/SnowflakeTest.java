@@ -0,0 +1,55 @@
+package com.kwanghoon.jpashop.domain.id;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SnowflakeTest {
+
+    @Test
+    public void 시간_노드_시퀀스로_구성() {
+        long now = Snowflake.EPOCH + 1_000;
+        Snowflake snowflake = new Snowflake(7, () -> now);
+
+        long first = snowflake.nextId();
+        long second = snowflake.nextId();
+
+        assertEquals(now, Snowflake.timestampOf(first));
+        assertEquals(7, Snowflake.nodeOf(first));
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    public void 시퀀스가_넘치면_다음_ms_로_넘어간다() {
+        long now = Snowflake.EPOCH + 1_000;
+        Snowflake snowflake = new Snowflake(1, () -> now);
+
+        long last = 0;
+        for (int i = 0; i < 5000; i++) {
+            long id = snowflake.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+        assertEquals(now + 1, Snowflake.timestampOf(last));
+        assertEquals(1, Snowflake.nodeOf(last));
+    }
+
+    @Test
+    public void 시계가_뒤로_가도_값이_줄지_않는다() {
+        AtomicLong clock = new AtomicLong(Snowflake.EPOCH + 10_000);
+        Snowflake snowflake = new Snowflake(1, clock::get);
+
+        long before = snowflake.nextId();
+        clock.addAndGet(-5_000);
+        long after = snowflake.nextId();
+
+        assertTrue(after > before);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 노드_범위_검사() {
+        new Snowflake(Snowflake.MAX_NODE_ID + 1, System::currentTimeMillis);
+    }
+}
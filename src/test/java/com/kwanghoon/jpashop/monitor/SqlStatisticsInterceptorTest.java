@@ -0,0 +1,44 @@
+package com.kwanghoon.jpashop.monitor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.Assert.*;
+
+public class SqlStatisticsInterceptorTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SqlStatisticsInterceptor interceptor = new SqlStatisticsInterceptor(meterRegistry, 10);
+
+    @After
+    public void tearDown() {
+        SqlStatistics.clear();
+    }
+
+    @Test
+    public void 비동기_요청은_async_dispatch_까지_이어서_집계한다() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v5/orders/stream");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v5/orders/stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        SqlStatistics.current().recordStatement("select * from orders", 1);
+
+        // when
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        assertNull("요청 스레드에는 통계가 남지 않는다.", SqlStatistics.current());
+
+        interceptor.preHandle(request, response, null); // async dispatch
+        SqlStatistics.current().recordStatement("select * from member", 1);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // then
+        assertNull(SqlStatistics.current());
+        assertEquals(1, meterRegistry.get("jpashop.sql.statements").summary().count());
+        assertEquals(2.0, meterRegistry.get("jpashop.sql.statements").summary().totalAmount(), 0);
+    }
+}
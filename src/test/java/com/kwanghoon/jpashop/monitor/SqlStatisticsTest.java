@@ -0,0 +1,34 @@
+package com.kwanghoon.jpashop.monitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SqlStatisticsTest {
+
+    @Test
+    public void IN_절_파라미터_개수가_달라도_같은_shape() throws Exception {
+        String shape1 = SqlStatistics.shapeOf("select * from order_item where order_id in (?, ?)");
+        String shape2 = SqlStatistics.shapeOf("select *\n  from order_item where order_id in (?,?,?,?)");
+
+        assertEquals(shape1, shape2);
+    }
+
+    @Test
+    public void 같은_shape_가_threshold_를_넘으면_N_plus_1() throws Exception {
+        // given
+        SqlStatistics statistics = new SqlStatistics();
+        statistics.recordStatement("select * from orders", 1);
+
+        // when
+        for (int i = 0; i < 11; i++) {
+            statistics.recordStatement("select * from member where member_id=?", 1);
+        }
+
+        // then
+        assertEquals(12, statistics.getStatements());
+        assertEquals(11, statistics.maxRepeat());
+        assertTrue(statistics.isNPlusOne(10));
+        assertFalse(statistics.isNPlusOne(11));
+    }
+}
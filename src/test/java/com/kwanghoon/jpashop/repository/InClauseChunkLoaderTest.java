@@ -0,0 +1,117 @@
+package com.kwanghoon.jpashop.repository;
+
+import com.kwanghoon.jpashop.domain.Member;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+/*
+* 병렬 조회는 별도 EntityManager(커넥션)에서 읽으므로 @Transactional 을 붙이지 않고 커밋한 뒤 지운다.
+*/
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InClauseChunkLoaderTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    List<Long> ids = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (int i = 0; i < 11; i++) { // chunk 4, 4, 3(-> 4)
+                Member member = new Member();
+                member.setName("chunk-member" + i);
+                em.persist(member);
+                ids.add(member.getId());
+            }
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ids.forEach(id -> jdbcTemplate.update("delete from member where member_id = ?", id));
+    }
+
+    @Test
+    public void 마지막_chunk_는_2의_거듭제곱으로_채운다() throws Exception {
+        assertEquals(1, InClauseChunkLoader.padSize(1));
+        assertEquals(2, InClauseChunkLoader.padSize(2));
+        assertEquals(4, InClauseChunkLoader.padSize(3));
+        assertEquals(512, InClauseChunkLoader.padSize(300));
+        assertEquals(512, InClauseChunkLoader.padSize(512));
+    }
+
+    @Test
+    public void chunk_경계를_넘어도_순서대로_전부_조회한다() throws Exception {
+        // given
+        InClauseChunkLoader loader = new InClauseChunkLoader(em, emf, CHUNK_SIZE, 1);
+        List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        List<Member> members = loader.load(ids, (chunkEm, chunk) -> {
+            chunkSizes.add(chunk.size());
+            return findMembers(chunkEm, chunk);
+        });
+
+        // then
+        assertEquals(ids, members.stream().map(Member::getId).collect(toList()));
+        assertEquals(Arrays.asList(4, 4, 4), chunkSizes);
+        loader.shutdown();
+    }
+
+    @Test
+    public void 병렬로_조회해도_결과가_같다() throws Exception {
+        // given
+        InClauseChunkLoader loader = new InClauseChunkLoader(em, emf, CHUNK_SIZE, 3);
+        List<EntityManager> usedEms = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        List<Member> members = loader.load(ids, (chunkEm, chunk) -> {
+            usedEms.add(chunkEm);
+            return findMembers(chunkEm, chunk);
+        });
+
+        // then
+        assertEquals(ids, members.stream().map(Member::getId).collect(toList()));
+        assertEquals(3, usedEms.size());
+        assertFalse("chunk 마다 별도 EntityManager 에서 조회", usedEms.contains(em));
+        loader.shutdown();
+    }
+
+    private static List<Member> findMembers(EntityManager chunkEm, List<Long> chunk) {
+        return chunkEm.createQuery("select m from Member m where m.id in :ids order by m.id", Member.class)
+            .setParameter("ids", chunk)
+            .getResultList();
+    }
+}
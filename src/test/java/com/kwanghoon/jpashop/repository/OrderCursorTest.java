@@ -0,0 +1,49 @@
+package com.kwanghoon.jpashop.repository;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+public class OrderCursorTest {
+
+    @Test
+    public void 인코딩한_커서를_그대로_복원한다() throws Exception {
+        // given
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2020, 8, 1, 12, 30, 15, 123_000_000), 42L);
+
+        // when
+        OrderCursor decoded = OrderCursor.decode(cursor.encode());
+
+        // then
+        assertEquals(cursor.getOrderDate(), decoded.getOrderDate());
+        assertEquals(cursor.getOrderId(), decoded.getOrderId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void base64_가_아니면_예외() throws Exception {
+        OrderCursor.decode("not base64!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 구분자가_없으면_예외() throws Exception {
+        OrderCursor.decode(encode("2020-08-01T12:30"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 날짜가_잘못되면_예외() throws Exception {
+        OrderCursor.decode(encode("yesterday|42"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void id_가_잘못되면_예외() throws Exception {
+        OrderCursor.decode(encode("2020-08-01T12:30|abc"));
+    }
+
+    private String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
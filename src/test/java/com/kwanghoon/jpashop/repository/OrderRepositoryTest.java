@@ -0,0 +1,160 @@
+package com.kwanghoon.jpashop.repository;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Delivery;
+import com.kwanghoon.jpashop.domain.Member;
+import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.domain.OrderItem;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.domain.item.Book;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Test
+    public void 회원_이름_접두어_검색과_건수() throws Exception {
+        // given
+        createOrder("kim_a");
+        createOrder("kim_b");
+        createOrder("kimchi");
+        createOrder("lee");
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("kim_");
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+
+        // when
+        List<Order> orders = orderRepository.findAll(orderSearch);
+
+        // then
+        assertEquals("_ 는 와일드카드가 아니라 문자로 검색해야 한다.", 2, orders.size());
+        assertEquals(2, orderRepository.count(orderSearch));
+    }
+
+    @Test
+    public void 페이징() throws Exception {
+        // given
+        for (int i = 0; i < 5; i++) {
+            createOrder("page" + i);
+        }
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("page");
+        orderSearch.setOffset(2);
+        orderSearch.setLimit(2);
+
+        // when
+        List<Order> orders = orderRepository.findAll(orderSearch);
+
+        // then
+        assertEquals(2, orders.size());
+        assertEquals("page2", orders.get(0).getMember().getName());
+        assertEquals(5, orderRepository.count(orderSearch));
+    }
+
+    @Test
+    public void 조회_전용_메서드는_읽기_전용_엔티티() throws Exception {
+        // given
+        createOrder("readonly");
+        em.flush();
+        em.clear();
+
+        // when
+        List<Order> orders = orderRepository.findAllWithItem();
+
+        // then
+        Session session = em.unwrap(Session.class);
+        assertFalse(orders.isEmpty());
+        for (Order order : orders) {
+            assertTrue("스냅샷 없이 읽기 전용으로 관리", session.isReadOnly(order));
+        }
+    }
+
+    @Test
+    public void 커서_페이징은_빠짐없이_중복없이_순서대로() throws Exception {
+        // given
+        LocalDateTime sameDate = LocalDateTime.of(2020, 8, 1, 12, 0);
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Order order = createOrder("cursor" + i);
+            order.setOrderDate(i < 3 ? sameDate : sameDate.plusMinutes(i)); // 앞의 3건은 같은 시간 -> id 로 구분
+            created.add(order.getId());
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        List<Order> all = new ArrayList<>();
+        OrderCursor cursor = null;
+        List<Order> page;
+        do {
+            page = orderRepository.findAllWithMemberDelivery(cursor, 2);
+            all.addAll(page);
+            cursor = page.isEmpty() ? null : OrderCursor.of(page.get(page.size() - 1));
+        } while (page.size() == 2);
+
+        // then
+        List<Long> ids = all.stream().map(Order::getId).collect(toList());
+        assertEquals("중복 없이", ids.size(), new HashSet<>(ids).size());
+        assertTrue("빠짐 없이", ids.containsAll(created));
+        assertEquals(em.createQuery("select count(o) from Order o", Long.class).getSingleResult().longValue(), ids.size());
+        for (int i = 1; i < all.size(); i++) {
+            Order prev = all.get(i - 1);
+            Order next = all.get(i);
+            int compare = prev.getOrderDate().compareTo(next.getOrderDate());
+            assertTrue("(orderDate, id) 순서", compare < 0 || (compare == 0 && prev.getId() < next.getId()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 음수_offset_은_예외() throws Exception {
+        new OrderSearch().setOffset(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 음수_limit_은_예외() throws Exception {
+        new OrderSearch().setLimit(-1);
+    }
+
+    private Order createOrder(String memberName) {
+        Member member = new Member();
+        member.setName(memberName);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("JPA book");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 10000, 1));
+        orderRepository.save(order);
+        return order;
+    }
+}
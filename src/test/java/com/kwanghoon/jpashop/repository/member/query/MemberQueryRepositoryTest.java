@@ -0,0 +1,47 @@
+package com.kwanghoon.jpashop.repository.member.query;
+
+import com.kwanghoon.jpashop.domain.Member;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class MemberQueryRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberQueryRepository memberQueryRepository;
+
+    @Test
+    public void keyset_페이징은_offset_페이징과_같은_결과() throws Exception {
+        // given
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member();
+            member.setName("keyset" + i);
+            em.persist(member);
+        }
+        em.flush();
+        List<MemberQueryDto> all = new ArrayList<>();
+        memberQueryRepository.streamAll(all::add);
+
+        // when
+        List<MemberQueryDto> page = memberQueryRepository.findPageAfter(all.get(1).getId(), 2);
+
+        // then
+        assertEquals(memberQueryRepository.findPage(2, 2), page);
+        assertEquals(all.get(2).getId(), page.get(0).getId());
+    }
+}
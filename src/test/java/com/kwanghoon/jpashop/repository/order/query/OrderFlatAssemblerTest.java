@@ -0,0 +1,77 @@
+package com.kwanghoon.jpashop.repository.order.query;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+public class OrderFlatAssemblerTest {
+
+    @Test
+    public void 연속된_row_를_주문_단위로_묶는다() throws Exception {
+        // given
+        List<OrderFlatDto> flats = createFlats(3, 2);
+
+        // when
+        List<OrderQueryDto> result = OrderFlatAssembler.assemble(flats);
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals("조회 순서가 유지되어야 한다.", Long.valueOf(1), result.get(0).getOrderId());
+        assertEquals(Long.valueOf(3), result.get(2).getOrderId());
+        assertEquals(2, result.get(1).getOrderItem().size());
+        assertEquals("item2-1", result.get(1).getOrderItem().get(1).getItemName());
+    }
+
+    @Test
+    public void 빈_결과() throws Exception {
+        assertTrue(OrderFlatAssembler.assemble(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void groupingBy_방식과_결과가_같다() throws Exception {
+        // given
+        List<OrderFlatDto> flats = createFlats(100, 4);
+
+        // when
+        List<OrderQueryDto> grouped = groupingBy_방식(flats);
+        List<OrderQueryDto> assembled = OrderFlatAssembler.assemble(flats);
+
+        // then
+        assertEquals(grouped.size(), assembled.size());
+        Map<Long, OrderQueryDto> groupedMap = grouped.stream().collect(toMap(OrderQueryDto::getOrderId, o -> o));
+        for (OrderQueryDto order : assembled) {
+            assertEquals(groupedMap.get(order.getOrderId()).getOrderItem(), order.getOrderItem());
+        }
+    }
+
+    /* 기존 OrderApiController.orderV6 의 변환 방식 */
+    private List<OrderQueryDto> groupingBy_방식(List<OrderFlatDto> flats) {
+        return flats.stream()
+            .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
+                    o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()), mapping(o -> new OrderItemQueryDto(o.getOrderId(),
+                o.getItemName(), o.getOrderPrice(), o.getCount()), toList()))).entrySet().stream()
+            .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+            .collect(toList());
+    }
+
+    private List<OrderFlatDto> createFlats(int orderCount, int itemsPerOrder) {
+        LocalDateTime now = LocalDateTime.now();
+        Address address = new Address("서울", "강가", "123-123");
+        List<OrderFlatDto> flats = new ArrayList<>(orderCount * itemsPerOrder);
+        for (long orderId = 1; orderId <= orderCount; orderId++) {
+            for (int i = 0; i < itemsPerOrder; i++) {
+                flats.add(new OrderFlatDto(orderId, "회원" + orderId, now, OrderStatus.ORDER, address,
+                    "item" + orderId + "-" + i, 10000, i + 1));
+            }
+        }
+        return flats;
+    }
+}
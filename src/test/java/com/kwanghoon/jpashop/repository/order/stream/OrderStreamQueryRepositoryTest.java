@@ -0,0 +1,141 @@
+package com.kwanghoon.jpashop.repository.order.stream;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Delivery;
+import com.kwanghoon.jpashop.domain.Member;
+import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.domain.OrderItem;
+import com.kwanghoon.jpashop.domain.item.Book;
+import com.kwanghoon.jpashop.repository.order.query.OrderItemQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryRepository;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import com.kwanghoon.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderStreamQueryRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderStreamQueryRepository orderStreamQueryRepository;
+
+    @Autowired
+    OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Test
+    public void V4_와_같은_결과() throws Exception {
+        // given
+        Long orderId = createOrder();
+
+        // when
+        List<OrderSimpleQueryDto> streamed = new ArrayList<>();
+        orderStreamQueryRepository.streamOrderDtos(streamed::add);
+
+        // then
+        assertEquals(orderSimpleQueryRepository.findOrderDtos().size(), streamed.size());
+        OrderSimpleQueryDto expected = orderSimpleQueryRepository.findOrderDtos().stream()
+            .filter(o -> o.getOrderId().equals(orderId)).findFirst().get();
+        OrderSimpleQueryDto actual = streamed.stream().filter(o -> o.getOrderId().equals(orderId)).findFirst().get();
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getOrderDate(), actual.getOrderDate());
+        assertEquals(expected.getOrderStatus(), actual.getOrderStatus());
+        assertEquals(expected.getAddress().getCity(), actual.getAddress().getCity());
+    }
+
+    @Test
+    public void V5_와_같은_결과() throws Exception {
+        // given
+        Long orderId = createOrder();
+
+        // when
+        List<OrderQueryDto> streamed = new ArrayList<>();
+        orderStreamQueryRepository.streamOrderQueryDtos(streamed::add);
+
+        // then
+        OrderQueryDto expected = orderQueryRepository.findAllByDto_optimization().stream()
+            .filter(o -> o.getOrderId().equals(orderId)).findFirst().get();
+        OrderQueryDto actual = streamed.stream().filter(o -> o.getOrderId().equals(orderId)).findFirst().get();
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getOrderDate(), actual.getOrderDate());
+        assertEquals(expected.getAddress().getZipcode(), actual.getAddress().getZipcode());
+        assertEquals(itemNames(expected), itemNames(actual));
+    }
+
+    @Test
+    public void 주문_상품이_없는_주문도_내려준다() throws Exception {
+        // given
+        Member member = createMember();
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order empty = Order.createOrder(member, delivery);
+        em.persist(empty);
+        em.flush();
+        em.clear();
+
+        // when
+        List<OrderQueryDto> streamed = new ArrayList<>();
+        orderStreamQueryRepository.streamOrderQueryDtos(streamed::add);
+
+        // then
+        OrderQueryDto actual = streamed.stream().filter(o -> o.getOrderId().equals(empty.getId())).findFirst().get();
+        assertEquals("stream-member", actual.getName());
+        assertTrue(actual.getOrderItem().isEmpty());
+    }
+
+    private List<String> itemNames(OrderQueryDto order) {
+        return order.getOrderItem().stream().map(OrderItemQueryDto::getItemName).sorted().collect(toList());
+    }
+
+    private Long createOrder() {
+        Member member = createMember();
+
+        Book book1 = createBook("stream book1");
+        Book book2 = createBook("stream book2");
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery,
+            OrderItem.createOrderItem(book1, 10000, 1), OrderItem.createOrderItem(book2, 20000, 2));
+        em.persist(order);
+        em.flush();
+        em.clear();
+        return order.getId();
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("stream-member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.domain.item.Book;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/*
+* 원장은 별도 커넥션 풀에서 커밋하므로 @Transactional 을 붙이지 않는다.
+*/
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InventoryLedgerTest {
+
+    private static final int LEASE_CHUNK = 10;
+
+    @Autowired
+    DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 재시작하면_이전_원장이_들고_있던_재고를_복구한다() throws Exception {
+        // given
+        Long itemId = saveBook(100);
+        InventoryLedger crashed = newLedger("recover-test");
+        assertTrue(crashed.reserve(itemId, 3)); // 주문은 커밋되지 않았다.
+        assertEquals(100 - LEASE_CHUNK, itemService.findOne(itemId).getStockQuantity());
+
+        // 메모리 재고를 비워서 flush 없이 종료된 상태로 만든다.
+        assertTrue(crashed.reserve(itemId, crashed.leased(itemId)));
+        crashed.close();
+
+        // when
+        InventoryLedger restarted = newLedger("recover-test");
+        restarted.recover();
+
+        // then
+        assertEquals(100, itemService.findOne(itemId).getStockQuantity());
+        restarted.close();
+    }
+
+    @Test
+    public void 다른_owner_의_원장은_복구하지_않는다() throws Exception {
+        // given
+        Long itemId = saveBook(100);
+        InventoryLedger other = newLedger("other-node");
+        assertTrue(other.reserve(itemId, 1));
+
+        // when
+        InventoryLedger restarted = newLedger("this-node");
+        restarted.recover();
+
+        // then
+        assertEquals(100 - LEASE_CHUNK, itemService.findOne(itemId).getStockQuantity());
+        other.close();
+        restarted.close();
+        assertEquals(99, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    private Long saveBook(int stock) {
+        Book book = new Book();
+        book.setName("ledger");
+        book.setPrice(10000);
+        book.setStockQuantity(stock);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private InventoryLedger newLedger(String owner) {
+        return new InventoryLedger(dataSourceProperties, emf, 1, 2, LEASE_CHUNK, owner);
+    }
+}
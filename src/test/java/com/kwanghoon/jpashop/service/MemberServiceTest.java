@@ -52,4 +52,22 @@ public class MemberServiceTest {
         fail("예외가 발생해야 한다.");
 
     }
-}
\ No newline at end of file
+
+    @Test(expected = IllegalStateException.class)
+    public void 이미_있는_이름으로_변경하면_예외() throws Exception {
+        // given
+        Member member1 = new Member();
+        member1.setName("kim");
+        memberService.join(member1);
+
+        Member member2 = new Member();
+        member2.setName("lee");
+        Long member2Id = memberService.join(member2);
+
+        // when
+        memberService.update(member2Id, "kim");
+
+        // then
+        fail("예외가 발생해야 한다.");
+    }
+}
@@ -0,0 +1,151 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Member;
+import com.kwanghoon.jpashop.domain.item.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/* 워커 스레드에서 커밋하므로 @Transactional 을 붙이지 않는다. */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "jpashop.order.ingest.enabled=true",
+    "jpashop.order.ingest.batch-size=20",
+    "jpashop.order.ingest.linger-millis=50"
+})
+public class OrderIngestionServiceTest {
+
+    @Autowired
+    OrderIngestionService orderIngestionService;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void 주문을_모아서_저장() throws Exception {
+        Member member = new Member();
+        member.setName("ingest-" + UUID.randomUUID());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        Long memberId = memberService.join(member);
+
+        Book book = new Book();
+        book.setName("ingest book");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        long batchesBefore = meterRegistry.summary("jpashop.order.ingest.batch").count();
+        List<CompletableFuture<OrderResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            futures.add(orderIngestionService.submit(
+                new OrderCommand(memberId, Collections.singletonList(new OrderCommand.Line(book.getId(), 1)))));
+        }
+
+        for (CompletableFuture<OrderResult> future : futures) {
+            assertTrue(future.get(10, TimeUnit.SECONDS).isSuccess());
+        }
+        assertEquals(40, itemService.findOne(book.getId()).getStockQuantity());
+        long batches = meterRegistry.summary("jpashop.order.ingest.batch").count() - batchesBefore;
+        assertTrue("주문 60건이 배치 " + batches + " 번에 저장", batches < 60);
+    }
+
+    @Test
+    public void token_으로_결과_조회() throws Exception {
+        String token = orderIngestionService.submitForToken(new OrderCommand(-1L, new ArrayList<>()));
+
+        OrderResult result = orderIngestionService.find(token).get().get(10, TimeUnit.SECONDS);
+
+        assertFalse(result.isSuccess());
+        assertFalse(orderIngestionService.find("unknown").isPresent());
+    }
+
+    @Test
+    public void 배치가_실패하면_한_건씩_다시_저장해서_문제된_주문만_실패() throws Exception {
+        // given
+        List<Integer> calls = new ArrayList<>();
+        OrderIngestionService service = ingestionService(commands -> {
+            calls.add(commands.size());
+            if (commands.stream().anyMatch(command -> command.getMemberId() == POISON)) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return commands.stream().map(command -> OrderResult.success(command.getMemberId())).collect(Collectors.toList());
+        });
+        service.start();
+
+        // when
+        CompletableFuture<OrderResult> ok1 = service.submit(new OrderCommand(1L, new ArrayList<>()));
+        CompletableFuture<OrderResult> poison = service.submit(new OrderCommand(POISON, new ArrayList<>()));
+        CompletableFuture<OrderResult> ok2 = service.submit(new OrderCommand(2L, new ArrayList<>()));
+        service.stop();
+
+        // then
+        assertEquals(Long.valueOf(1L), ok1.get(10, TimeUnit.SECONDS).getOrderId());
+        assertEquals(Long.valueOf(2L), ok2.get(10, TimeUnit.SECONDS).getOrderId());
+        try {
+            poison.get(10, TimeUnit.SECONDS);
+            fail("문제된 주문은 예외로 완료되어야 한다.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(Arrays.asList(3, 1, 1, 1), calls);
+    }
+
+    @Test
+    public void 종료된_뒤에는_접수하지_않는다() throws Exception {
+        // given
+        OrderIngestionService service = ingestionService(commands ->
+            commands.stream().map(command -> OrderResult.success(command.getMemberId())).collect(Collectors.toList()));
+        service.start();
+        CompletableFuture<OrderResult> accepted = service.submit(new OrderCommand(1L, new ArrayList<>()));
+
+        // when
+        service.stop();
+
+        // then
+        assertTrue("종료 전에 접수한 주문은 저장된다.", accepted.isDone());
+        assertTrue(accepted.get().isSuccess());
+        try {
+            service.submit(new OrderCommand(2L, new ArrayList<>()));
+            fail("종료 후 접수는 예외가 발생해야 한다.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static final long POISON = -99L;
+
+    /* 워커 하나, linger 를 길게 잡아서 제출한 주문이 한 배치로 묶이게 한다. */
+    private OrderIngestionService ingestionService(Function<List<OrderCommand>, List<OrderResult>> orderAll) {
+        OrderService orderService = new OrderService(null, null, null, null, null) {
+            @Override
+            public List<OrderResult> orderAll(List<OrderCommand> commands) {
+                return orderAll.apply(commands);
+            }
+        };
+        return new OrderIngestionService(orderService, new SimpleMeterRegistry(), true, 100, 100, 500, 0, 300);
+    }
+}
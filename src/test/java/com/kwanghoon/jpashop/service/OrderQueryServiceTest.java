@@ -0,0 +1,33 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.service.OrderQueryService.CardinalityStats;
+import com.kwanghoon.jpashop.service.OrderQueryService.Strategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OrderQueryServiceTest {
+
+    OrderQueryService orderQueryService = new OrderQueryService(null, new SimpleMeterRegistry(), 60, 10_000, 3);
+
+    @Test
+    public void 주문_한_건이면_V4() throws Exception {
+        assertEquals(Strategy.V4, orderQueryService.choose(new CardinalityStats(1, 5, 0)));
+    }
+
+    @Test
+    public void 결과가_작고_상품이_적으면_V6() throws Exception {
+        assertEquals(Strategy.V6, orderQueryService.choose(new CardinalityStats(100, 200, 0)));
+    }
+
+    @Test
+    public void 주문이_많으면_V5() throws Exception {
+        assertEquals(Strategy.V5, orderQueryService.choose(new CardinalityStats(100_000, 300_000, 0)));
+    }
+
+    @Test
+    public void 주문당_상품이_많으면_V5() throws Exception {
+        assertEquals(Strategy.V5, orderQueryService.choose(new CardinalityStats(100, 1_000, 0)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Delivery;
+import com.kwanghoon.jpashop.domain.Member;
+import com.kwanghoon.jpashop.domain.Order;
+import com.kwanghoon.jpashop.domain.OrderItem;
+import com.kwanghoon.jpashop.domain.item.Book;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryDto;
+import com.kwanghoon.jpashop.service.OrderQueryService.Strategy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+/* 조회 전략(V4, V5, V6)은 건수와 상관없이 같은 결과를 돌려줘야 한다. */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderQueryStrategyTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderQueryService orderQueryService;
+
+    @Test
+    public void 모든_전략의_결과가_같다() throws Exception {
+        // given
+        Member member = new Member();
+        member.setName("strategy-member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book1 = createBook("JPA book");
+        Book book2 = createBook("Spring book");
+
+        em.persist(Order.createOrder(member, delivery(member),
+            OrderItem.createOrderItem(book1, 10000, 1), OrderItem.createOrderItem(book2, 20000, 2)));
+        Order empty = Order.createOrder(member, delivery(member)); // 주문 상품이 없는 주문
+        em.persist(empty);
+        em.flush();
+        em.clear();
+
+        // when
+        List<String> v4 = normalize(orderQueryService.findOrders(Strategy.V4));
+        List<String> v5 = normalize(orderQueryService.findOrders(Strategy.V5));
+        List<String> v6 = normalize(orderQueryService.findOrders(Strategy.V6));
+
+        // then
+        assertEquals(v4, v5);
+        assertEquals(v4, v6);
+        assertTrue("주문 상품이 없는 주문도 나와야 한다.", v6.stream().anyMatch(o -> o.startsWith(empty.getId() + "|")));
+    }
+
+    /* OrderQueryDto 의 equals 는 orderId 만 비교하므로 전체 필드를 문자열로 비교한다. */
+    private List<String> normalize(List<OrderQueryDto> orders) {
+        return orders.stream()
+            .sorted(Comparator.comparing(OrderQueryDto::getOrderId))
+            .map(o -> o.getOrderId() + "|" + o.getName() + "|" + o.getOrderDate() + "|" + o.getOrderStatus() + "|"
+                + o.getAddress().getCity() + "|" + o.getOrderItem())
+            .collect(toList());
+    }
+
+    private Delivery delivery(Member member) {
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        return delivery;
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book;
+    }
+}
@@ -1,21 +1,31 @@
 package com.kwanghoon.jpashop.service;
 
 import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.DeliveryStatus;
 import com.kwanghoon.jpashop.domain.Member;
 import com.kwanghoon.jpashop.domain.Order;
 import com.kwanghoon.jpashop.domain.OrderStatus;
+import com.kwanghoon.jpashop.domain.OrderSummary;
 import com.kwanghoon.jpashop.domain.item.Book;
 import com.kwanghoon.jpashop.domain.item.Item;
 import com.kwanghoon.jpashop.exception.NotEnoughStockException;
+import com.kwanghoon.jpashop.repository.ItemRepository;
+import com.kwanghoon.jpashop.repository.MemberRepository;
 import com.kwanghoon.jpashop.repository.OrderRepository;
+import com.kwanghoon.jpashop.repository.OrderSummaryRepository;
+import com.kwanghoon.jpashop.repository.order.query.OrderQueryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -33,6 +43,24 @@ public class OrderServiceTest {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    ObjectProvider<InventoryLedger> inventoryLedger;
+
     @Test
     public void 상품주문() throws Exception {
         // given
@@ -88,6 +116,186 @@ public class OrderServiceTest {
 
     }
 
+    @Test
+    public void 대량주문_실패한_주문만_제외() throws Exception {
+        // given
+        Member member = createMember();
+        Book book1 = createBook("JPA book", 10000, 10);
+        Book book2 = createBook("Spring book", 20000, 3);
+
+        List<OrderCommand> commands = Arrays.asList(
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book1.getId(), 2), new OrderCommand.Line(book2.getId(), 1))),
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book2.getId(), 5))), // 재고 부족
+            new OrderCommand(-1L, Arrays.asList(new OrderCommand.Line(book1.getId(), 1))),             // 없는 회원
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book1.getId(), 3)))
+        );
+
+        // when
+        List<OrderResult> results = orderService.orderAll(commands);
+
+        // then
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(2, orderRepository.findOne(results.get(0).getOrderId()).getOrderItems().size());
+        assertEquals("성공한 주문만큼 재고가 차감되어야 한다.", 5, book1.getStockQuantity());
+        assertEquals(2, book2.getStockQuantity());
+    }
+
+    @Test
+    public void 대량취소_배송완료_주문은_제외() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("JPA book", 10000, 10);
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 3);
+        Long completedId = orderService.order(member.getId(), book.getId(), 1);
+        orderRepository.findOne(completedId).getDelivery().setStatus(DeliveryStatus.COMP);
+
+        // when
+        List<OrderResult> results = orderService.cancelAll(Arrays.asList(orderId1, orderId2, completedId, -1L));
+
+        // then
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId2).getStatus());
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(completedId).getStatus());
+        assertEquals("취소된 주문 수량만큼 재고가 복구되어야 한다.", 9, em.find(Book.class, book.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void 주문을_취소하면_버전과_ETag_가_바뀐다() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("JPA book", 10000, 10);
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 1);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+        String before = orderQueryRepository.findVersionSummary().fingerprint();
+
+        // when
+        orderService.cancelOrder(orderId1);
+        em.flush();
+        String afterCancel = orderQueryRepository.findVersionSummary().fingerprint();
+        orderService.cancelAll(Arrays.asList(orderId2));
+        String afterBulkCancel = orderQueryRepository.findVersionSummary().fingerprint();
+
+        // then
+        assertEquals("1-0-0", orderQueryRepository.findVersion(orderId1).get());
+        assertEquals("벌크 취소도 version 을 올린다.", "1-0-0", orderQueryRepository.findVersion(orderId2).get());
+        assertNotEquals(before, afterCancel);
+        assertNotEquals(afterCancel, afterBulkCancel);
+        assertEquals(afterBulkCancel, orderQueryRepository.findVersionSummary().fingerprint());
+    }
+
+    @Test
+    public void 회원_이름이나_배송지가_바뀌면_ETag_가_바뀐다() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("JPA book", 10000, 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+        String before = orderQueryRepository.findVersionSummary().fingerprint();
+        String beforeOne = orderQueryRepository.findVersion(orderId).get();
+
+        // when
+        memberService.update(member.getId(), "회원1-변경");
+        em.flush();
+        String afterRename = orderQueryRepository.findVersionSummary().fingerprint();
+        orderService.updateDeliveryAddress(orderId, new Address("부산", "해운대", "456-456"));
+        em.flush();
+        String afterAddress = orderQueryRepository.findVersionSummary().fingerprint();
+
+        // then
+        assertNotEquals(before, afterRename);
+        assertNotEquals(afterRename, afterAddress);
+        assertNotEquals(beforeOne, orderQueryRepository.findVersion(orderId).get());
+    }
+
+    @Test
+    public void 주문_요약은_같은_트랜잭션에서_갱신된다() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("JPA book", 10000, 10);
+
+        // when
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+        em.flush();
+        em.clear();
+
+        // then
+        OrderSummary summary = em.find(OrderSummary.class, orderId);
+        assertEquals("회원1", summary.getMemberName());
+        assertEquals(OrderStatus.ORDER, summary.getStatus());
+        assertEquals(1, summary.getItemCount());
+        assertEquals(30000, summary.getTotalPrice());
+
+        // when
+        orderService.cancelOrder(orderId);
+        memberService.update(member.getId(), "회원1-변경");
+        em.flush();
+        em.clear();
+
+        // then
+        summary = em.find(OrderSummary.class, orderId);
+        assertEquals(OrderStatus.CANCEL, summary.getStatus());
+        assertEquals("회원1-변경", summary.getMemberName());
+    }
+
+    @Test
+    public void 대량주문도_재고_차감_방식을_따른다() throws Exception {
+        // given
+        StockService atomic = new StockService(itemRepository, inventoryLedger, new SimpleMeterRegistry(), "atomic");
+        OrderService atomicOrderService = new OrderService(orderRepository, memberRepository, itemRepository, atomic, orderSummaryRepository);
+        Member member = createMember();
+        Book book1 = createBook("JPA book", 10000, 10);
+        Book book2 = createBook("Spring book", 20000, 3);
+
+        List<OrderCommand> commands = Arrays.asList(
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book1.getId(), 2), new OrderCommand.Line(book2.getId(), 5))), // 재고 부족
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book1.getId(), 3), new OrderCommand.Line(book2.getId(), 1)))
+        );
+
+        // when
+        List<OrderResult> results = atomicOrderService.orderAll(commands);
+        em.flush();
+        em.clear();
+
+        // then
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("실패한 주문이 먼저 차감한 재고는 되돌려야 한다.", 7, em.find(Book.class, book1.getId()).getStockQuantity());
+        assertEquals(2, em.find(Book.class, book2.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void 대량주문_주문이나_주문상품이_null_이면_그_주문만_실패() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("JPA book", 10000, 10);
+
+        List<OrderCommand> commands = Arrays.asList(
+            null,
+            new OrderCommand(member.getId(), null),
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book.getId(), 1), null)),
+            new OrderCommand(member.getId(), Arrays.asList(new OrderCommand.Line(book.getId(), 2)))
+        );
+
+        // when
+        List<OrderResult> results = orderService.orderAll(commands);
+
+        // then
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(8, book.getStockQuantity());
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
@@ -0,0 +1,184 @@
+package com.kwanghoon.jpashop.service;
+
+import com.kwanghoon.jpashop.domain.Address;
+import com.kwanghoon.jpashop.domain.Member;
+import com.kwanghoon.jpashop.domain.item.Book;
+import com.kwanghoon.jpashop.exception.NotEnoughStockException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/*
+* 인기 상품 하나에 동시 주문 (트랜잭션을 실제로 커밋해야 하므로 @Transactional 을 붙이지 않는다.)
+* 재고 차감 방식(jpashop.stock.mode)마다 별도의 컨텍스트에서 실행하고, 커밋된 데이터는 테스트가 끝나면 지운다.
+*/
+@RunWith(Enclosed.class)
+public class StockConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 20;
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = "jpashop.stock.mode=atomic")
+    public static class Atomic extends HotSkuTest {
+
+        @Test
+        public void 원자적_차감은_재고를_잃어버리지_않는다() throws Exception {
+            int stock = THREADS * ORDERS_PER_THREAD / 2; // 절반은 재고 부족으로 거절
+
+            Result result = runHotSku(stock);
+
+            assertEquals(stock, result.success);
+            assertEquals(THREADS * ORDERS_PER_THREAD - stock, result.rejected);
+            assertEquals(0, result.remainingStock);
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = "jpashop.stock.mode=optimistic")
+    public static class Optimistic extends HotSkuTest {
+
+        @Autowired
+        MeterRegistry meterRegistry;
+
+        @Test
+        public void 낙관적_락_재시도() throws Exception {
+            int stock = THREADS * ORDERS_PER_THREAD;
+            double retriesBefore = meterRegistry.counter("jpashop.stock.optimistic.retries").count();
+
+            Result result = runHotSku(stock);
+
+            assertEquals("성공한 주문 수만큼만 재고가 줄어야 한다.", stock - result.success, result.remainingStock);
+            assertTrue("버전 충돌은 재시도해야 한다.", meterRegistry.counter("jpashop.stock.optimistic.retries").count() > retriesBefore);
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = "jpashop.stock.mode=ledger")
+    public static class Ledger extends HotSkuTest {
+
+        @Autowired
+        InventoryLedger inventoryLedger;
+
+        @Test
+        public void 재고_원장은_초과_판매하지_않는다() throws Exception {
+            int stock = THREADS * ORDERS_PER_THREAD / 2;
+
+            Result result = runHotSku(stock);
+
+            assertEquals(stock, result.success);
+            assertEquals(THREADS * ORDERS_PER_THREAD - stock, result.rejected);
+            inventoryLedger.flushAll();
+            assertEquals(0, itemService.findOne(result.itemId).getStockQuantity());
+        }
+    }
+
+    public abstract static class HotSkuTest {
+
+        @Autowired
+        OrderFacade orderFacade;
+
+        @Autowired
+        MemberService memberService;
+
+        @Autowired
+        ItemService itemService;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        private Long memberId;
+        private Long itemId;
+
+        @After
+        public void cleanUp() {
+            if (itemId == null) {
+                return;
+            }
+            List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, memberId);
+            jdbcTemplate.update("delete from order_summary where member_id = ?", memberId);
+            jdbcTemplate.update("delete from order_item where item_id = ?", itemId);
+            jdbcTemplate.update("delete from orders where member_id = ?", memberId);
+            deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+            jdbcTemplate.update("delete from stock_lease where item_id = ?", itemId);
+            jdbcTemplate.update("delete from item where item_id = ?", itemId);
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+        }
+
+        Result runHotSku(int stock) throws Exception {
+            Member member = new Member();
+            member.setName("hot-sku-" + UUID.randomUUID());
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            memberId = memberService.join(member);
+
+            Book book = new Book();
+            book.setName("hot sku");
+            book.setPrice(10000);
+            book.setStockQuantity(stock);
+            itemService.saveItem(book);
+            itemId = book.getId();
+
+            AtomicInteger success = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        try {
+                            orderFacade.order(memberId, itemId, 1);
+                            success.incrementAndGet();
+                        } catch (NotEnoughStockException e) {
+                            rejected.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            // 재시도를 모두 실패, 재고는 그대로
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            return new Result(itemId, success.get(), rejected.get(), itemService.findOne(itemId).getStockQuantity());
+        }
+    }
+
+    static class Result {
+        final Long itemId;
+        final int success;
+        final int rejected;
+        final int remainingStock;
+
+        Result(Long itemId, int success, int rejected, int remainingStock) {
+            this.itemId = itemId;
+            this.success = success;
+            this.rejected = rejected;
+            this.remainingStock = remainingStock;
+        }
+    }
+}